@@ -0,0 +1,47 @@
+package org.example.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link Person}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class PersonBenchmark
+{
+  private Person person;
+
+  /**
+   * Prepares a person to read from.
+   */
+  @Setup
+  public void setUp()
+  {
+    person = new Person("John", "Doe", "123-45-6789");
+  }
+
+  /**
+   * Measures creating a person, which includes generating a new key and
+   * encrypting the sensitive personal information.
+   */
+  @Benchmark
+  public Person create()
+  {
+    return new Person("John", "Doe", "123-45-6789");
+  }
+
+  /**
+   * Measures reading the sensitive personal information for a person.
+   */
+  @Benchmark
+  public String readSocialBenefitsNumber()
+  {
+    return person.getSocialBenefitsNumber();
+  }
+}
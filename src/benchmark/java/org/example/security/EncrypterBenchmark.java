@@ -0,0 +1,82 @@
+package org.example.security;
+
+import org.example.security.keygen.FixedPassphraseProvider;
+import org.example.security.keygen.KeyGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link Encrypter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class EncrypterBenchmark
+{
+  @Param({ "16", "1024", "65536" })
+  private int size;
+
+  private String    encrypted;
+  private Encrypter encrypter;
+  private String    text;
+
+  /**
+   * Prepares the encrypter and a payload of the required size.
+   */
+  @Setup
+  public void setUp()
+  {
+    final char[] chars = new char[size];
+
+    Arrays.fill(chars, 'x');
+
+    encrypter = new Encrypter(new KeyGenerator().generateKey(new FixedPassphraseProvider().getPassphrase()).getItem1());
+    text = new String(chars);
+    encrypted = encrypter.encrypt(text);
+  }
+
+  /**
+   * Measures decrypting a payload.
+   */
+  @Benchmark
+  public String decrypt()
+  {
+    return encrypter.decrypt(encrypted);
+  }
+
+  /**
+   * Measures decrypting a payload with all available threads sharing the
+   * same encrypter.
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String decryptContended()
+  {
+    return encrypter.decrypt(encrypted);
+  }
+
+  /**
+   * Measures encrypting a payload.
+   */
+  @Benchmark
+  public String encrypt()
+  {
+    return encrypter.encrypt(text);
+  }
+
+  /**
+   * Measures encrypting a payload with all available threads sharing the
+   * same encrypter.
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String encryptContended()
+  {
+    return encrypter.encrypt(text);
+  }
+}
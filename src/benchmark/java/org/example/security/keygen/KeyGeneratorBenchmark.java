@@ -0,0 +1,110 @@
+package org.example.security.keygen;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link KeyGenerator}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class KeyGeneratorBenchmark
+{
+  @Param({ "1000", "10000", "100000" })
+  private int rounds;
+
+  private KeyGenerator     cachingGenerator;
+  private Pbkdf2HmacSha1   engine;
+  private SecretKeyFactory factory;
+  private KeyGenerator     generator;
+  private String           passphrase;
+  private String           salt;
+
+  /**
+   * Prepares the generators and the passphrase and salt to generate keys
+   * from.
+   */
+  @Setup
+  public void setUp() throws NoSuchAlgorithmException
+  {
+    cachingGenerator = new CachingKeyGenerator();
+    factory = SecretKeyFactory.getInstance(KeyParameters.DEFAULT.getAlgorithm());
+    generator = new KeyGenerator(KeyParameters.DEFAULT.withRounds(rounds));
+    passphrase = new FixedPassphraseProvider().getPassphrase();
+    salt = generator.generateSalt();
+    engine = new Pbkdf2HmacSha1(passphrase);
+  }
+
+  /**
+   * Measures deriving a key from a passphrase and a salt with the built-in
+   * engine, whether or not {@link KeyGenerator} uses it on this JVM.
+   */
+  @Benchmark
+  public byte[] deriveKeyWithEngine()
+  {
+    return engine.derive(Base64.getDecoder().decode(salt), rounds, KeyParameters.DEFAULT.getKeyLength() / 8);
+  }
+
+  /**
+   * Measures generating a key when it has been generated before, and so is
+   * found in the cache.
+   */
+  @Benchmark
+  public Key generateCachedKey()
+  {
+    return cachingGenerator.generateKey(passphrase, salt).getItem1();
+  }
+
+  /**
+   * Measures generating a key from a passphrase and a salt.
+   */
+  @Benchmark
+  public Key generateKey()
+  {
+    return generator.generateKey(passphrase, salt).getItem1();
+  }
+
+  /**
+   * Measures generating a key from a passphrase and a salt with all
+   * available threads doing the same at the same time.
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public Key generateKeyContended()
+  {
+    return generator.generateKey(passphrase, salt).getItem1();
+  }
+
+  /**
+   * Measures deriving a key from a passphrase and a salt with the
+   * platform's {@link SecretKeyFactory}, for comparison with
+   * {@link #deriveKeyWithEngine()}.
+   */
+  @Benchmark
+  public byte[] generateKeyWithKeyFactory() throws InvalidKeySpecException
+  {
+    return factory.generateSecret(new PBEKeySpec(passphrase.toCharArray(), Base64.getDecoder().decode(salt), rounds
+        , KeyParameters.DEFAULT.getKeyLength())).getEncoded();
+  }
+
+  /**
+   * Measures generating a random salt.
+   */
+  @Benchmark
+  public String generateSalt()
+  {
+    return generator.generateSalt();
+  }
+}
@@ -0,0 +1,143 @@
+package org.example.service;
+
+import org.example.domain.Person;
+import org.example.domain.PersonName;
+import org.example.domain.PersonView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks for {@link PersonService} against the embedded H2 database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+public class PersonServiceBenchmark
+{
+  private static final int IMPORT_SIZE = 10000;
+  private static final int PAGE_SIZE   = 50;
+  private static final int SECRETS     = 1000;
+
+  @Param({ "1000", "100000", "1000000" })
+  private int rows;
+
+  private ClassPathXmlApplicationContext context;
+  private PersonService                  service;
+
+  /**
+   * Removes the persons imported by {@link #importAll()} during the previous
+   * iteration, so that every iteration runs against the required number of
+   * persons.
+   */
+  @Setup(Level.Iteration)
+  public void reset()
+  {
+    execute(entityManager -> entityManager.createNativeQuery("delete from person where first_name like 'Import%'")
+                                          .executeUpdate());
+  }
+
+  /**
+   * Starts the application and populates the database with the required
+   * number of persons.  Up to a thousand persons are created through the
+   * service, each with a key of its own, and the rest are copied from them
+   * in the database, cycling through their keys, to avoid spending hours on
+   * encryption while still reading persons with many different keys.
+   */
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    context = new ClassPathXmlApplicationContext("springDataContext.xml", "springServiceContext.xml");
+    service = context.getBean(PersonService.class);
+
+    final int seeds = Math.min(rows, SECRETS);
+
+    service.importAll(IntStream.range(0, seeds).boxed()
+        , i -> new Person("First" + i, "Seed" + i, String.format("%09d", i)));
+
+    execute(entityManager -> {
+      final List<?> ids = entityManager.createQuery("select p.id from Person p order by p.id").getResultList();
+
+      for (int i = 0; i < ids.size(); ++i)
+      {
+        entityManager.createNativeQuery("insert into person (id, first_name, last_name, secret, social_benefits_number, social_benefits_number_index, version)"
+                                            + " select next value for model_sequence, 'First' || mod(r.x, 1000), 'Last' || (r.x * ?1 + ?2), p.secret, p.social_benefits_number, p.social_benefits_number_index, 0"
+                                            + " from person p, system_range(1, ?3) r"
+                                            + " where p.id = ?4")
+                     .setParameter(1, seeds)
+                     .setParameter(2, i)
+                     .setParameter(3, (rows - seeds) / seeds + (i < (rows - seeds) % seeds ? 1 : 0))
+                     .setParameter(4, ids.get(i))
+                     .executeUpdate();
+      }
+    });
+  }
+
+  /**
+   * Stops the application, discarding the database.
+   */
+  @TearDown
+  public void tearDown()
+  {
+    context.close();
+  }
+
+  /**
+   * Measures importing persons in bulk, including encrypting them, into a
+   * database holding the required number of persons.
+   */
+  @Benchmark
+  public long importAll()
+  {
+    return service.importAll(IntStream.range(0, IMPORT_SIZE).boxed()
+        , i -> new Person("Import" + i, "Person" + i, "123-45-6789"));
+  }
+
+  /**
+   * Measures loading the names of all persons.
+   */
+  @Benchmark
+  public List<PersonName> list()
+  {
+    return service.list();
+  }
+
+  /**
+   * Measures loading and decrypting the first page of persons.
+   */
+  @Benchmark
+  public List<PersonView> listDecryptedPage()
+  {
+    return service.listDecrypted(null, PAGE_SIZE);
+  }
+
+  /**
+   * Runs work against the database in a transaction of its own.
+   *
+   * @param work The work to run.
+   */
+  private void execute(final Consumer<EntityManager> work)
+  {
+    final EntityManager entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+
+    try
+    {
+      entityManager.getTransaction().begin();
+      work.accept(entityManager);
+      entityManager.getTransaction().commit();
+    }
+    finally
+    {
+      entityManager.close();
+    }
+  }
+}
@@ -0,0 +1,483 @@
+package org.example.web;
+
+import org.HdrHistogram.Histogram;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test for the application.  Starts the application in an
+ * embedded Tomcat, as it is deployed, with the production settings, waits for
+ * it to be ready, imports a number of persons through {@code /import}, and
+ * then drives a number of concurrent clients, each of which repeatedly either
+ * displays the home page ({@code GET /}) or saves a new person
+ * ({@code POST /}), first for a warm-up period and then for a measured period.
+ * Throughput and latency percentiles for each kind of request are printed,
+ * and the full latency distributions are written as {@code HdrHistogram}
+ * percentile distributions ({@code .hgrm} files).
+ *
+ * <p>Each client sends its next request as soon as the previous one has
+ * completed, so latencies are those seen at the given concurrency, not at a
+ * given request rate.  Requests that fail or are not answered with
+ * {@code 200 OK}, such as those rejected with
+ * {@code 503 Service Unavailable} when the request executor is full, are
+ * counted as errors and left out of the latencies.</p>
+ *
+ * <p>Settings are read from system properties, along with the settings for
+ * the application itself, such as {@code requestExecutor.poolSize} and
+ * {@code dataSource.maximumPoolSize}:</p>
+ *
+ * <ul>
+ *   <li>{@code loadtest.clients}: The number of concurrent clients (16).</li>
+ *   <li>{@code loadtest.durationSeconds}: The length of the measured period
+ *       (60).</li>
+ *   <li>{@code loadtest.persons}: The number of persons to import before the
+ *       test (1000).</li>
+ *   <li>{@code loadtest.port}: The port to listen on, {@code 0} for any free
+ *       port (0).</li>
+ *   <li>{@code loadtest.reports}: The directory to write the latency
+ *       distributions to (the working directory).</li>
+ *   <li>{@code loadtest.warmUpSeconds}: The length of the warm-up period
+ *       (15).</li>
+ *   <li>{@code loadtest.webapp}: The directory holding the web application
+ *       ({@code src/main/webapp}).</li>
+ *   <li>{@code loadtest.writePercent}: The percentage of requests that save
+ *       a person rather than display the home page (10).</li>
+ * </ul>
+ */
+public final class LoadTest
+{
+  private static final int    CLIENTS       = Integer.getInteger("loadtest.clients", 16);
+  private static final int    DURATION      = Integer.getInteger("loadtest.durationSeconds", 60);
+  private static final int    PERSONS       = Integer.getInteger("loadtest.persons", 1000);
+  private static final int    PORT          = Integer.getInteger("loadtest.port", 0);
+  private static final long   READY_TIMEOUT = TimeUnit.MINUTES.toNanos(2);
+  private static final String REPORTS       = System.getProperty("loadtest.reports", ".");
+  private static final int    WARM_UP       = Integer.getInteger("loadtest.warmUpSeconds", 15);
+  private static final String WEBAPP        = System.getProperty("loadtest.webapp", "src/main/webapp");
+  private static final int    WRITE_PERCENT = Integer.getInteger("loadtest.writePercent", 10);
+
+  /**
+   * Not to be instantiated.
+   */
+  private LoadTest()
+  {
+  }
+
+  /**
+   * Runs the load test.
+   *
+   * @param args Not used.
+   * @throws Exception if the application cannot be started or the load test
+   *                   cannot be run.
+   */
+  public static void main(final String[] args) throws Exception
+  {
+    if (WRITE_PERCENT < 0 || WRITE_PERCENT > 100)
+    {
+      throw new IllegalArgumentException("Write percentage [" + WRITE_PERCENT + "] must be between 0 and 100.");
+    }
+
+    if (System.getProperty("spring.profiles.active") == null)
+    {
+      System.setProperty("spring.profiles.active", "production");
+    }
+
+    final Tomcat tomcat = start();
+
+    try
+    {
+      final String base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+
+      awaitReady(base);
+      seed(base);
+
+      System.out.printf(Locale.ROOT, "Warming up for %d s with %d clients...%n", WARM_UP, CLIENTS);
+      run(base, WARM_UP);
+
+      System.out.printf(Locale.ROOT, "Measuring for %d s with %d clients...%n", DURATION, CLIENTS);
+      report(run(base, DURATION), DURATION);
+    }
+    finally
+    {
+      tomcat.stop();
+      tomcat.destroy();
+    }
+  }
+
+  /**
+   * Waits for the application to report itself ready.
+   *
+   * @param base The base {@code URL} for the application.
+   * @throws Exception if the application is not ready in time.
+   */
+  private static void awaitReady(final String base) throws Exception
+  {
+    final long deadline = System.nanoTime() + READY_TIMEOUT;
+
+    while (send(base + "/ready", "GET", null, null) != HttpURLConnection.HTTP_OK)
+    {
+      if (System.nanoTime() - deadline > 0)
+      {
+        throw new IllegalStateException("Application not ready after " + TimeUnit.NANOSECONDS.toSeconds(READY_TIMEOUT)
+                                        + " seconds.");
+      }
+
+      Thread.sleep(100);
+    }
+  }
+
+  /**
+   * Prints a summary of a kind of request and writes its latency
+   * distribution.
+   *
+   * @param name     The name of the kind of request.
+   * @param result   The result for the kind of request.
+   * @param duration The length of the measured period, in seconds.
+   * @throws IOException if the latency distribution cannot be written.
+   */
+  private static void report(final String name, final Result result, final int duration) throws IOException
+  {
+    final Histogram latencies = result.latencies;
+
+    System.out.printf(Locale.ROOT, "%-8s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n", name
+        , latencies.getTotalCount(), result.errors, (double) latencies.getTotalCount() / duration
+        , latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(95) / 1000.0
+        , latencies.getValueAtPercentile(99) / 1000.0, latencies.getValueAtPercentile(99.9) / 1000.0
+        , latencies.getMaxValue() / 1000.0);
+
+    final File file = new File(REPORTS, "loadtest-" + name.toLowerCase(Locale.ROOT) + ".hgrm");
+
+    try (final PrintStream out = new PrintStream(file, StandardCharsets.UTF_8.name()))
+    {
+      latencies.outputPercentileDistribution(out, 1000.0);
+    }
+  }
+
+  /**
+   * Prints a summary of the measured period and writes the latency
+   * distributions.
+   *
+   * @param results  The results, by kind of request.
+   * @param duration The length of the measured period, in seconds.
+   * @throws IOException if the latency distributions cannot be written.
+   */
+  private static void report(final Result[] results, final int duration) throws IOException
+  {
+    final Result all = new Result();
+
+    System.out.printf(Locale.ROOT, "%-8s %10s %8s %12s %10s %10s %10s %10s %10s%n", "Request", "Count", "Errors"
+        , "Per second", "p50 (ms)", "p95 (ms)", "p99 (ms)", "p99.9 (ms)", "Max (ms)");
+
+    for (final Request request : Request.values())
+    {
+      report(request.name(), results[request.ordinal()], duration);
+
+      all.add(results[request.ordinal()]);
+    }
+
+    report("All", all, duration);
+
+    System.out.println("Latency distributions written to " + new File(REPORTS).getCanonicalPath() + ".");
+  }
+
+  /**
+   * Drives the application with concurrent clients for a period.
+   *
+   * @param base     The base {@code URL} for the application.
+   * @param duration The length of the period, in seconds.
+   * @return The results, by kind of request.
+   * @throws Exception if a client fails.
+   */
+  private static Result[] run(final String base, final int duration) throws Exception
+  {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+    final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+    try
+    {
+      final List<Future<Result[]>> futures = new ArrayList<>(CLIENTS);
+
+      for (int i = 0; i < CLIENTS; ++i)
+      {
+        futures.add(clients.submit(() -> run(base, deadline)));
+      }
+
+      final Result[] results = Result.forRequests();
+
+      for (final Future<Result[]> future : futures)
+      {
+        final Result[] client = future.get();
+
+        for (int i = 0; i < results.length; ++i)
+        {
+          results[i].add(client[i]);
+        }
+      }
+
+      return results;
+    }
+    finally
+    {
+      clients.shutdownNow();
+    }
+  }
+
+  /**
+   * Sends requests to the application, one at a time, until a deadline.
+   *
+   * @param base     The base {@code URL} for the application.
+   * @param deadline The deadline, as given by {@link System#nanoTime()}.
+   * @return The results, by kind of request.
+   */
+  private static Result[] run(final String base, final long deadline)
+  {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final Result[] results = Result.forRequests();
+
+    while (System.nanoTime() - deadline < 0)
+    {
+      final Request request = random.nextInt(100) < WRITE_PERCENT ? Request.POST : Request.GET;
+      final Result result = results[request.ordinal()];
+      final long start = System.nanoTime();
+
+      try
+      {
+        if (request.send(base, random) == HttpURLConnection.HTTP_OK)
+        {
+          result.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+        else
+        {
+          ++result.errors;
+        }
+      }
+      catch (final IOException e)
+      {
+        ++result.errors;
+      }
+    }
+
+    return results;
+  }
+
+  /**
+   * Imports persons into the application.
+   *
+   * @param base The base {@code URL} for the application.
+   * @throws IOException if the persons cannot be imported.
+   */
+  private static void seed(final String base) throws IOException
+  {
+    final StringBuilder csv = new StringBuilder();
+
+    for (int i = 0; i < PERSONS; ++i)
+    {
+      csv.append("Seed").append(i % 1000).append(",Person").append(i).append(',')
+         .append(String.format(Locale.ROOT, "%09d", i)).append('\n');
+    }
+
+    final long start = System.nanoTime();
+    final int status = send(base + "/import", "POST", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+
+    if (status != HttpURLConnection.HTTP_OK)
+    {
+      throw new IllegalStateException("Importing persons failed with status [" + status + "].");
+    }
+
+    System.out.printf(Locale.ROOT, "Imported %d persons in %d ms.%n", PERSONS
+        , TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Sends a request and reads the response in full, so that the connection
+   * can be reused.
+   *
+   * @param url         The {@code URL} to send the request to.
+   * @param method      The {@code HTTP} method.
+   * @param contentType The type of the request body, if any.
+   * @param body        The request body, if any.
+   * @return The status of the response.
+   * @throws IOException if the request cannot be sent or the response cannot
+   *                     be read.
+   */
+  private static int send(final String url, final String method, final String contentType, final byte[] body)
+      throws IOException
+  {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+    connection.setRequestMethod(method);
+
+    if (body != null)
+    {
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(body.length);
+      connection.setRequestProperty("Content-Type", contentType);
+
+      try (final OutputStream out = connection.getOutputStream())
+      {
+        out.write(body);
+      }
+    }
+
+    final int status = connection.getResponseCode();
+
+    try (final InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST
+                                ? connection.getInputStream()
+                                : connection.getErrorStream())
+    {
+      if (in != null)
+      {
+        final byte[] buffer = new byte[8192];
+
+        while (in.read(buffer) != -1)
+        {
+          // Discard the response.
+        }
+      }
+    }
+
+    return status;
+  }
+
+  /**
+   * Starts the application in an embedded Tomcat.
+   *
+   * @return The embedded Tomcat.
+   * @throws Exception if the application cannot be started.
+   */
+  private static Tomcat start() throws Exception
+  {
+    final Tomcat tomcat = new Tomcat();
+
+    tomcat.setBaseDir(Files.createTempDirectory("loadtest").toString());
+    tomcat.setPort(PORT);
+
+    // The application declares everything it needs in its own deployment
+    // descriptor, and does not use JSPs.
+    tomcat.setAddDefaultWebXmlToWebapp(false);
+
+    final Context context = tomcat.addWebapp("", new File(WEBAPP).getAbsolutePath());
+
+    tomcat.start();
+
+    if (!context.getState().isAvailable())
+    {
+      tomcat.stop();
+      tomcat.destroy();
+
+      throw new IllegalStateException("Application failed to start.");
+    }
+
+    return tomcat;
+  }
+
+  /**
+   * A kind of request sent by the clients.
+   */
+  private enum Request
+  {
+    /**
+     * Displays the home page.
+     */
+    GET
+    {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      int send(final String base, final ThreadLocalRandom random) throws IOException
+      {
+        return LoadTest.send(base + "/", "GET", null, null);
+      }
+    },
+
+    /**
+     * Saves a new person and displays the home page.
+     */
+    POST
+    {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      int send(final String base, final ThreadLocalRandom random) throws IOException
+      {
+        final String form = "firstName=Load&lastName=" + URLEncoder.encode("Test " + random.nextInt(1000), "UTF-8")
+                            + "&socialBenefitsNumber=" + String.format(Locale.ROOT, "%09d", random.nextInt(1000000000));
+
+        return LoadTest.send(base + "/", "POST", "application/x-www-form-urlencoded"
+            , form.getBytes(StandardCharsets.UTF_8));
+      }
+    };
+
+    /**
+     * Sends a request of this kind.
+     *
+     * @param base   The base {@code URL} for the application.
+     * @param random The source of random values for the request.
+     * @return The status of the response.
+     * @throws IOException if the request cannot be sent or the response
+     *                     cannot be read.
+     */
+    abstract int send(final String base, final ThreadLocalRandom random) throws IOException;
+  }
+
+  /**
+   * The latencies of the successful requests of a kind, in microseconds, and
+   * the number of failed requests.  Not thread-safe: each client keeps results
+   * of its own, which are added up once the clients have finished.
+   */
+  private static final class Result
+  {
+    private final Histogram latencies = new Histogram(3);
+
+    private long errors;
+
+    /**
+     * Creates empty results for each kind of request.
+     *
+     * @return Empty results, indexed by {@link Request#ordinal()}.
+     */
+    static Result[] forRequests()
+    {
+      final Result[] results = new Result[Request.values().length];
+
+      for (int i = 0; i < results.length; ++i)
+      {
+        results[i] = new Result();
+      }
+
+      return results;
+    }
+
+    /**
+     * Adds other results to these.
+     *
+     * @param other The results to add.
+     */
+    void add(final Result other)
+    {
+      errors += other.errors;
+      latencies.add(other.latencies);
+    }
+  }
+}
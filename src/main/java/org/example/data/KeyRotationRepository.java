@@ -0,0 +1,17 @@
+package org.example.data;
+
+import org.example.domain.KeyRotation;
+
+/**
+ * Contract for data access operations for {@link KeyRotation}.
+ */
+public interface KeyRotationRepository extends ModelRepository<KeyRotation>
+{
+  /**
+   * Finds the most recently started key rotation.
+   *
+   * @return The latest {@link KeyRotation}, {@code null} if no rotation has
+   * been started.
+   */
+  KeyRotation findFirstByOrderByIdDesc();
+}
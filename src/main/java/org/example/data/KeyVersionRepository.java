@@ -0,0 +1,18 @@
+package org.example.data;
+
+import org.example.domain.KeyVersion;
+
+import java.util.List;
+
+/**
+ * Contract for data access operations for {@link KeyVersion}.
+ */
+public interface KeyVersionRepository extends ModelRepository<KeyVersion>
+{
+  /**
+   * Finds all versions of the passphrase added by key rotations.
+   *
+   * @return The {@link KeyVersion}s, in order of version.
+   */
+  List<KeyVersion> findAllByOrderByKeyVersionAsc();
+}
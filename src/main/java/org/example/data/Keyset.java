@@ -0,0 +1,74 @@
+package org.example.data;
+
+/**
+ * Identifies a position in the list of persons ordered by first name, last
+ * name and unique identifier, so that the next page of persons can be
+ * fetched by seeking directly past it instead of skipping over all the
+ * persons before it.
+ */
+public final class Keyset
+{
+  private final String firstName;
+  private final Long   id;
+  private final String lastName;
+
+  /**
+   * Creates a keyset.
+   *
+   * @param firstName The first name of the last person seen.
+   * @param lastName  The last name of the last person seen.
+   * @param id        The unique identifier of the last person seen.
+   * @throws NullPointerException if any of the arguments is {@code null}.
+   */
+  public Keyset(final String firstName, final String lastName, final Long id)
+  {
+    if (firstName == null)
+    {
+      throw new NullPointerException("Argument [firstName] must not be null.");
+    }
+
+    if (lastName == null)
+    {
+      throw new NullPointerException("Argument [lastName] must not be null.");
+    }
+
+    if (id == null)
+    {
+      throw new NullPointerException("Argument [id] must not be null.");
+    }
+
+    this.firstName = firstName;
+    this.id = id;
+    this.lastName = lastName;
+  }
+
+  /**
+   * Gets the first name of the last person seen.
+   *
+   * @return The first name of the last person seen.
+   */
+  public String getFirstName()
+  {
+    return firstName;
+  }
+
+  /**
+   * Gets the unique identifier of the last person seen.
+   *
+   * @return The unique identifier of the last person seen.
+   */
+  public Long getID()
+  {
+    return id;
+  }
+
+  /**
+   * Gets the last name of the last person seen.
+   *
+   * @return The last name of the last person seen.
+   */
+  public String getLastName()
+  {
+    return lastName;
+  }
+}
@@ -1,10 +1,109 @@
 package org.example.data;
 
 import org.example.domain.Person;
+import org.example.domain.PersonName;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Contract for data access operations for {@link Person}.
+ * Contract for data access operations for {@link Person}.  The results of
+ * the queries used for listing persons are cached, and are invalidated
+ * whenever persons are added, changed or removed.
  */
-public interface PersonRepository extends ModelRepository<Person>
+public interface PersonRepository extends ModelRepository<Person>, PersonRepositoryCustom
 {
+  /**
+   * The name of the query hint that caches the results of a query.
+   */
+  String CACHEABLE = "org.hibernate.cacheable";
+
+  /**
+   * The number of rows fetched from the database at a time when streaming
+   * persons.
+   */
+  String FETCH_SIZE = "100";
+
+  /**
+   * Counts all persons.
+   *
+   * @return The number of persons.
+   */
+  @Query("select count(p) from Person p")
+  @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+  long countAll();
+
+  /**
+   * Finds all persons, in a specified order.
+   *
+   * @param sort The order in which to return the persons.
+   * @return A {@link List} of {@link Person}s.
+   */
+  @Override
+  @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+  List<Person> findAll(Sort sort);
+
+  /**
+   * Finds the names of all persons, ordered by first name, last name and
+   * unique identifier.  Only the names and unique identifiers are read,
+   * which the index on them holds in order, so neither the rest of each
+   * person nor a sort is required.
+   *
+   * @return A {@link List} of {@link PersonName}s.
+   */
+  @Query("select new org.example.domain.PersonName(p.id, p.firstName, p.lastName) from Person p"
+      + " order by p.firstName, p.lastName, p.id")
+  List<PersonName> findAllNames();
+
+  /**
+   * Finds the first page of persons, ordered by first name, last name and
+   * unique identifier.
+   *
+   * @param page The page size.  Only the size of the page is used, the page
+   *             number is ignored.
+   * @return A {@link List} of {@link Person}s.
+   */
+  @Query("select p from Person p order by p.firstName, p.lastName, p.id")
+  @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+  List<Person> findFirstPage(Pageable page);
+
+  /**
+   * Finds a page of persons that come after a specified person, ordered by
+   * first name, last name and unique identifier.
+   *
+   * @param firstName The first name of the last person seen.
+   * @param lastName  The last name of the last person seen.
+   * @param id        The unique identifier of the last person seen.
+   * @param page      The page size.  Only the size of the page is used, the
+   *                  page number is ignored.
+   * @return A {@link List} of {@link Person}s.
+   */
+  @Query("select p from Person p"
+      + " where p.firstName > :firstName"
+      + " or (p.firstName = :firstName and p.lastName > :lastName)"
+      + " or (p.firstName = :firstName and p.lastName = :lastName and p.id > :id)"
+      + " order by p.firstName, p.lastName, p.id")
+  @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+  List<Person> findPageAfter(@Param("firstName") String firstName
+      , @Param("lastName") String lastName
+      , @Param("id") Long id
+      , Pageable page);
+
+  /**
+   * Streams all persons, ordered by first name, last name and unique
+   * identifier.  Persons are fetched from the database in small batches as
+   * the stream is consumed.  The stream must be consumed within a
+   * transaction and closed after use.
+   *
+   * @return A {@link Stream} of {@link Person}s.
+   */
+  @Query("select p from Person p order by p.firstName, p.lastName, p.id")
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = FETCH_SIZE))
+  Stream<Person> streamAll();
 }
@@ -0,0 +1,22 @@
+package org.example.data;
+
+import org.example.domain.Person;
+
+import java.util.List;
+
+/**
+ * Contract for data access operations for {@link Person} that cannot be
+ * derived from method names or declared as queries.
+ */
+public interface PersonRepositoryCustom
+{
+  /**
+   * Finds the persons with a specified social benefits number.  The lookup
+   * uses the blind index for the number, so it is an indexed query that does
+   * not require any person to be decrypted.
+   *
+   * @param socialBenefitsNumber The social benefits number to look for.
+   * @return A {@link List} of {@link Person}s.
+   */
+  List<Person> findBySocialBenefitsNumber(String socialBenefitsNumber);
+}
@@ -0,0 +1,27 @@
+package org.example.data;
+
+import org.example.domain.Person;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * Implements the data access operations in {@link PersonRepositoryCustom}.
+ */
+public class PersonRepositoryImpl implements PersonRepositoryCustom
+{
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Person> findBySocialBenefitsNumber(final String socialBenefitsNumber)
+  {
+    return entityManager.createQuery("select p from Person p where p.socialBenefitsNumberIndex = :index", Person.class)
+                        .setParameter("index", Person.index(socialBenefitsNumber))
+                        .getResultList();
+  }
+}
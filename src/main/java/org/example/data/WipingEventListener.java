@@ -0,0 +1,178 @@
+package org.example.data;
+
+import org.example.security.Wipeable;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.event.spi.ClearEvent;
+import org.hibernate.event.spi.ClearEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EvictEvent;
+import org.hibernate.event.spi.EvictEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wipes sensitive information held in the clear by {@link Wipeable}
+ * entities when they leave the persistence context: when the persistence
+ * context is cleared or closed, or when the entities are detached from it.
+ * Entities are tracked from when they are loaded or inserted, separately for
+ * each Hibernate session.
+ *
+ * <p>Registered with Hibernate through the {@code hibernate.ejb.event.*}
+ * properties for the {@code clear}, {@code evict}, {@code post-insert} and
+ * {@code post-load} events.  Hibernate creates an instance for each event,
+ * so the tracked entities are shared between instances.</p>
+ */
+public class WipingEventListener implements ClearEventListener
+    , EvictEventListener
+    , PostInsertEventListener
+    , PostLoadEventListener
+{
+  private static final ConcurrentMap<EventSource, Wiper> WIPERS           = new ConcurrentHashMap<>();
+  private static final long                             serialVersionUID = 1L;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onClear(final ClearEvent event)
+  {
+    final Wiper wiper = WIPERS.get(event.getSession());
+
+    if (wiper != null)
+    {
+      wiper.wipe();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onEvict(final EvictEvent event)
+  {
+    final Wiper wiper = WIPERS.get(event.getSession());
+
+    if (wiper != null && event.getObject() instanceof Wipeable)
+    {
+      wiper.wipe((Wipeable) event.getObject());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onPostInsert(final PostInsertEvent event)
+  {
+    track(event.getSession(), event.getEntity());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onPostLoad(final PostLoadEvent event)
+  {
+    track(event.getSession(), event.getEntity());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean requiresPostCommitHanding(final EntityPersister persister)
+  {
+    return false;
+  }
+
+  /**
+   * Starts tracking an entity, if it holds sensitive information.
+   *
+   * @param session The session the entity belongs to.
+   * @param entity  The entity.
+   */
+  private static void track(final EventSource session, final Object entity)
+  {
+    if (entity instanceof Wipeable)
+    {
+      WIPERS.computeIfAbsent(session, Wiper::new).track((Wipeable) entity);
+    }
+  }
+
+  /**
+   * Tracks the {@link Wipeable} entities in a session, and wipes them when
+   * the session ends.
+   */
+  private static final class Wiper extends BaseSessionEventListener
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<Wipeable> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final EventSource   session;
+
+    /**
+     * Creates a wiper for a session, and registers it to be notified when
+     * the session ends.
+     *
+     * @param session The session.
+     */
+    private Wiper(final EventSource session)
+    {
+      this.session = session;
+
+      session.addEventListeners(this);
+    }
+
+    /**
+     * Wipes all tracked entities and stops tracking the session.
+     */
+    @Override
+    public void end()
+    {
+      WIPERS.remove(session);
+
+      wipe();
+    }
+
+    /**
+     * Starts tracking an entity.
+     *
+     * @param entity The entity.
+     */
+    private void track(final Wipeable entity)
+    {
+      entities.add(entity);
+    }
+
+    /**
+     * Wipes all tracked entities and stops tracking them.
+     */
+    private void wipe()
+    {
+      entities.forEach(Wipeable::wipe);
+      entities.clear();
+    }
+
+    /**
+     * Wipes an entity and stops tracking it.
+     *
+     * @param entity The entity.
+     */
+    private void wipe(final Wipeable entity)
+    {
+      if (entities.remove(entity))
+      {
+        entity.wipe();
+      }
+    }
+  }
+}
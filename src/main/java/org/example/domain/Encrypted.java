@@ -0,0 +1,23 @@
+package org.example.domain;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link String} field of an {@link EncryptedModel} as holding
+ * sensitive information that is stored encrypted, with the key for the
+ * entity it belongs to.  The field holds the encrypted value, which is
+ * written to and read from the database as-is.  The value in the clear is
+ * read with {@link EncryptedModel#getDecrypted(String)} and written with
+ * {@link EncryptedModel#setDecrypted(String, String)}, using the name of the
+ * field.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Encrypted
+{
+}
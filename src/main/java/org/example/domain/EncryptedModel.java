@@ -0,0 +1,462 @@
+package org.example.domain;
+
+import org.example.lang.Pair;
+import org.example.metrics.Metrics;
+import org.example.security.Encrypter;
+import org.example.security.EncrypterRegistry;
+import org.example.security.SensitiveValue;
+import org.example.security.Wipeable;
+
+import javax.persistence.Column;
+import javax.persistence.EntityListeners;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
+import javax.validation.constraints.NotNull;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Represents a domain entity that holds sensitive information, in fields
+ * marked {@link Encrypted}.  Each entity has a key of its own, obtained from
+ * a secret stored with the entity, and all its encrypted fields are
+ * encrypted with that key.  Subclasses provide the
+ * {@link EncrypterRegistry} from which the key is obtained, and read and
+ * write the values in the clear through {@link #getDecrypted(String)} and
+ * {@link #setDecrypted(String, String)}.
+ *
+ * <p>A field is decrypted only when first required, at most once for each
+ * instance, and held in the clear in a {@link SensitiveValue} that is wiped
+ * when the persistence context holding the entity is cleared or closed.  A
+ * changed field is encrypted only when the entity is written to the
+ * database (see {@link EncryptionListener}), unless {@link #encrypt()} is
+ * invoked earlier.</p>
+ *
+ * <p>The encryption is not implemented as a JPA {@code AttributeConverter},
+ * because a converter is given only the value of a column, and not the
+ * entity it belongs to, so it cannot get at the secret for the entity.</p>
+ */
+@EntityListeners(EncryptionListener.class)
+@MappedSuperclass
+public abstract class EncryptedModel extends Model implements Wipeable
+{
+  private static final ClassValue<Map<String, Field>> FIELDS = new ClassValue<Map<String, Field>>()
+  {
+    /**
+     * Finds the fields marked {@link Encrypted} for an entity type.
+     *
+     * @param type The entity type.
+     * @return An immutable {@link Map} of the fields, by name.
+     * @throws IllegalStateException if a field marked {@link Encrypted} is
+     *                               not a {@link String}.
+     */
+    @Override
+    protected Map<String, Field> computeValue(final Class<?> type)
+    {
+      final Map<String, Field> fields = new LinkedHashMap<>();
+
+      for (Class<?> current = type; current != EncryptedModel.class; current = current.getSuperclass())
+      {
+        for (final Field field : current.getDeclaredFields())
+        {
+          if (field.isAnnotationPresent(Encrypted.class))
+          {
+            if (field.getType() != String.class)
+            {
+              throw new IllegalStateException("Encrypted field [" + field + "] must be a String.");
+            }
+
+            field.setAccessible(true);
+
+            fields.put(field.getName(), field);
+          }
+        }
+      }
+
+      return Collections.unmodifiableMap(fields);
+    }
+  };
+
+  @Column(length = 1000, name = "secret")
+  @NotNull
+  private String secret;
+
+  @Transient
+  private transient Encrypter encrypter;
+
+  @Transient
+  private transient Map<String, SensitiveValue> plaintexts;
+
+  /**
+   * Deliberately hidden to prevent direct instantiation.
+   */
+  protected EncryptedModel()
+  {
+    super();
+  }
+
+  /**
+   * Decrypts the encrypted fields of a number of entities in one go.
+   * Entities are grouped by their secrets so that the key for each group is
+   * obtained only once, and the groups are decrypted in parallel.  Fields
+   * that have been decrypted already are not decrypted again.
+   *
+   * @param entities The entities to decrypt.
+   * @param executor The {@link Executor} to use for decrypting the groups.
+   */
+  public static void decryptAll(final List<? extends EncryptedModel> entities, final Executor executor)
+  {
+    final Map<String, List<EncryptedModel>> groups = new LinkedHashMap<>();
+
+    for (final EncryptedModel entity : entities)
+    {
+      if (entity.secret != null && !entity.isDecrypted())
+      {
+        groups.computeIfAbsent(entity.secret, secret -> new ArrayList<>()).add(entity);
+      }
+    }
+
+    final CompletableFuture<?>[] tasks = new CompletableFuture<?>[groups.size()];
+
+    int task = 0;
+    for (final List<EncryptedModel> group : groups.values())
+    {
+      tasks[task++] = CompletableFuture.runAsync(Metrics.propagate(() -> decrypt(group)), executor);
+    }
+
+    CompletableFuture.allOf(tasks).join();
+  }
+
+  /**
+   * Encrypts changed fields straight away, instead of when the entity is
+   * written to the database, for example so that many entities can be
+   * encrypted in parallel before being written.  Does nothing if no field
+   * has changed.
+   */
+  public void encrypt()
+  {
+    if (plaintexts == null)
+    {
+      return;
+    }
+
+    for (final Map.Entry<String, SensitiveValue> entry : plaintexts.entrySet())
+    {
+      final Field field = getField(entry.getKey());
+
+      if (read(field) == null)
+      {
+        write(field, getEncrypter().encrypt(entry.getValue().get()));
+      }
+    }
+  }
+
+  /**
+   * Re-encrypts all encrypted fields with a new key, if the secret for this
+   * entity is not of the kind currently generated for new entities, was
+   * generated with an earlier version of the passphrase, or records weaker
+   * key-generation parameters than those for new entities.  This allows
+   * entities to be migrated lazily, as and when they are saved, or in bulk.
+   *
+   * @return {@code true} if the entity was re-encrypted, {@code false} if
+   * the entity was already up-to-date.
+   */
+  public boolean rekey()
+  {
+    if (secret == null || getEncrypters().isCurrent(secret))
+    {
+      return false;
+    }
+
+    // Decrypt with the old key before discarding it.
+    for (final Field field : getFields().values())
+    {
+      getDecrypted(field.getName());
+    }
+
+    for (final Field field : getFields().values())
+    {
+      write(field, null);
+    }
+
+    encrypter = null;
+    secret = null;
+
+    encrypt();
+
+    return true;
+  }
+
+  /**
+   * Wipes the decrypted fields from memory, except those that have changed
+   * and have not been encrypted yet, as wiping those would lose the change.
+   */
+  @Override
+  public void wipe()
+  {
+    if (plaintexts == null)
+    {
+      return;
+    }
+
+    for (final Map.Entry<String, SensitiveValue> entry : plaintexts.entrySet())
+    {
+      if (read(getField(entry.getKey())) != null)
+      {
+        entry.getValue().wipe();
+      }
+    }
+  }
+
+  /**
+   * Gets the value of an encrypted field, in the clear.
+   *
+   * @param name The name of the field.
+   * @return The decrypted value.
+   * @throws IllegalArgumentException if the field is not marked
+   *                                  {@link Encrypted}.
+   */
+  protected String getDecrypted(final String name)
+  {
+    final SensitiveValue plaintext = getPlaintexts().get(name);
+
+    if (plaintext != null && !plaintext.isWiped())
+    {
+      return plaintext.get();
+    }
+
+    final String encrypted = read(getField(name));
+    final String decrypted = encrypted == null ? null : getEncrypter().decrypt(encrypted);
+
+    getPlaintexts().put(name, new SensitiveValue(decrypted));
+
+    return decrypted;
+  }
+
+  /**
+   * Gets the registry from which the encrypter for this entity is obtained.
+   * All entities of a type should share the same registry.
+   *
+   * @return The {@link EncrypterRegistry}.
+   */
+  protected abstract EncrypterRegistry getEncrypters();
+
+  /**
+   * Sets the value of an encrypted field, in the clear.  The field is
+   * encrypted when the entity is written to the database.
+   *
+   * @param name  The name of the field.
+   * @param value The value.
+   * @return {@code true} if the value has changed, {@code false} otherwise.
+   * @throws IllegalArgumentException if the field is not marked
+   *                                  {@link Encrypted}.
+   */
+  protected boolean setDecrypted(final String name, final String value)
+  {
+    final Field field = getField(name);
+
+    if (read(field) != null && Objects.equals(getDecrypted(name), value))
+    {
+      // The value has not changed, so there is nothing to write.
+      return false;
+    }
+
+    final SensitiveValue previous = getPlaintexts().put(name, new SensitiveValue(value));
+
+    if (previous != null)
+    {
+      previous.wipe();
+    }
+
+    // Clearing the encrypted value marks the entity as changed, so that it is
+    // encrypted when the entity is written to the database.
+    write(field, null);
+
+    return true;
+  }
+
+  /**
+   * Brings the secret for this entity up-to-date, and encrypts changed
+   * fields, before the entity is written to the database.
+   */
+  void beforeWrite()
+  {
+    rekey();
+    encrypt();
+  }
+
+  /**
+   * Decrypts a group of entities that share the same secret, a field at a
+   * time.
+   *
+   * @param group The entities in the group.
+   */
+  private static void decrypt(final List<EncryptedModel> group)
+  {
+    final EncryptedModel first = group.get(0);
+    final Encrypter encrypter = first.getEncrypter();
+
+    for (final Field field : first.getFields().values())
+    {
+      final List<EncryptedModel> pending = new ArrayList<>(group.size());
+      final List<String> encrypted = new ArrayList<>(group.size());
+
+      for (final EncryptedModel entity : group)
+      {
+        final SensitiveValue plaintext = entity.getPlaintexts().get(field.getName());
+
+        if (plaintext == null || plaintext.isWiped())
+        {
+          pending.add(entity);
+          encrypted.add(entity.read(field));
+        }
+      }
+
+      final List<String> decrypted = encrypter.decryptAll(encrypted);
+
+      for (int i = 0; i < pending.size(); ++i)
+      {
+        pending.get(i).encrypter = encrypter;
+        pending.get(i).getPlaintexts().put(field.getName(), new SensitiveValue(decrypted.get(i)));
+      }
+    }
+  }
+
+  /**
+   * Gets an encrypter that can encrypt and decrypt the fields of this
+   * entity.  A new entity does not have a secret yet, in which case the
+   * secret is generated along with the key.
+   *
+   * @return An {@link Encrypter}.
+   */
+  private Encrypter getEncrypter()
+  {
+    if (encrypter == null)
+    {
+      if (secret == null)
+      {
+        final Pair<Encrypter, String> pair = getEncrypters().newEncrypter();
+
+        encrypter = pair.getItem1();
+        secret = pair.getItem2();
+      }
+      else
+      {
+        encrypter = getEncrypters().getEncrypter(secret);
+      }
+    }
+
+    return encrypter;
+  }
+
+  /**
+   * Gets an encrypted field of this entity.
+   *
+   * @param name The name of the field.
+   * @return The {@link Field}.
+   * @throws IllegalArgumentException if the field is not marked
+   *                                  {@link Encrypted}.
+   */
+  private Field getField(final String name)
+  {
+    final Field field = getFields().get(name);
+
+    if (field == null)
+    {
+      throw new IllegalArgumentException("Field [" + name + "] of [" + getClass().getName() + "] is not encrypted.");
+    }
+
+    return field;
+  }
+
+  /**
+   * Gets the encrypted fields of this entity.
+   *
+   * @return An immutable {@link Map} of the fields, by name.
+   */
+  private Map<String, Field> getFields()
+  {
+    return FIELDS.get(getClass());
+  }
+
+  /**
+   * Gets the values in the clear of the fields that have been decrypted or
+   * changed.
+   *
+   * @return A {@link Map} of the values, by field name.
+   */
+  private Map<String, SensitiveValue> getPlaintexts()
+  {
+    if (plaintexts == null)
+    {
+      plaintexts = new HashMap<>();
+    }
+
+    return plaintexts;
+  }
+
+  /**
+   * Gets whether all encrypted fields are held in the clear, having been
+   * decrypted or changed, and not wiped since.
+   *
+   * @return {@code true} if no field needs to be decrypted, {@code false}
+   * otherwise.
+   */
+  private boolean isDecrypted()
+  {
+    for (final String name : getFields().keySet())
+    {
+      final SensitiveValue plaintext = getPlaintexts().get(name);
+
+      if (plaintext == null || plaintext.isWiped())
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads the encrypted value of a field.
+   *
+   * @param field The field.
+   * @return The encrypted value.
+   */
+  private String read(final Field field)
+  {
+    try
+    {
+      return (String) field.get(this);
+    }
+    catch (final IllegalAccessException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Writes the encrypted value of a field.
+   *
+   * @param field The field.
+   * @param value The encrypted value.
+   */
+  private void write(final Field field, final String value)
+  {
+    try
+    {
+      field.set(this, value);
+    }
+    catch (final IllegalAccessException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
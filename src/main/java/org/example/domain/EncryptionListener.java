@@ -0,0 +1,26 @@
+package org.example.domain;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/**
+ * Encrypts the changed fields of an {@link EncryptedModel}, with an
+ * up-to-date key, when the entity is written to the database.  The
+ * listener is invoked before an update only for entities that have changed,
+ * which is why changing a field clears its encrypted value.
+ */
+public class EncryptionListener
+{
+  /**
+   * Brings the key for an entity up-to-date, and encrypts its changed
+   * fields, before the entity is inserted or updated.
+   *
+   * @param entity The entity being written.
+   */
+  @PrePersist
+  @PreUpdate
+  public void beforeWrite(final EncryptedModel entity)
+  {
+    entity.beforeWrite();
+  }
+}
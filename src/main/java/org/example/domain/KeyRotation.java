@@ -0,0 +1,258 @@
+package org.example.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+/**
+ * Records the progress of re-encrypting all persons with a new version of
+ * the passphrase.  Persons are re-encrypted in order of first name, last
+ * name and unique identifier, and the position of the last person
+ * re-encrypted is saved along with each chunk of persons, so that a rotation
+ * that is interrupted can resume where it stopped.
+ */
+@Entity
+@Table(name = "key_rotation")
+public class KeyRotation extends Model
+{
+  @Column(length = 50, name = "after_first_name")
+  private String afterFirstName;
+
+  @Column(name = "after_id")
+  private Long afterID;
+
+  @Column(length = 50, name = "after_last_name")
+  private String afterLastName;
+
+  @Column(name = "completed")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date completed;
+
+  @Column(name = "key_version")
+  @NotNull
+  private Integer keyVersion;
+
+  @Column(name = "processed")
+  @NotNull
+  private Long processed;
+
+  @Column(name = "rekeyed")
+  @NotNull
+  private Long rekeyed;
+
+  @Column(name = "started")
+  @NotNull
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date started;
+
+  @Column(name = "total")
+  @NotNull
+  private Long total;
+
+  @Column(name = "updated")
+  @NotNull
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date updated;
+
+  /**
+   * Deliberately hidden to prevent direct instantiation.
+   */
+  KeyRotation()
+  {
+    super();
+  }
+
+  /**
+   * Creates a rotation that has not processed any persons yet.
+   *
+   * @param keyVersion The version of the passphrase to re-encrypt persons
+   *                   with.
+   * @param total      The number of persons to process.
+   */
+  public KeyRotation(final int keyVersion, final long total)
+  {
+    this();
+
+    this.keyVersion = keyVersion;
+    this.processed = 0L;
+    this.rekeyed = 0L;
+    this.started = new Date();
+    this.total = total;
+    this.updated = this.started;
+  }
+
+  /**
+   * Records that a chunk of persons has been processed.
+   *
+   * @param firstName The first name of the last person processed.
+   * @param lastName  The last name of the last person processed.
+   * @param id        The unique identifier of the last person processed.
+   * @param processed The number of persons processed in the chunk.
+   * @param rekeyed   The number of persons in the chunk that needed to be
+   *                  re-encrypted.
+   */
+  public void advance(final String firstName, final String lastName, final Long id, final int processed
+      , final int rekeyed)
+  {
+    this.afterFirstName = firstName;
+    this.afterID = id;
+    this.afterLastName = lastName;
+    this.processed += processed;
+    this.rekeyed += rekeyed;
+    this.updated = new Date();
+  }
+
+  /**
+   * Records that all persons have been processed.
+   */
+  public void complete()
+  {
+    this.completed = new Date();
+    this.updated = this.completed;
+  }
+
+  /**
+   * Gets the first name of the last person processed.
+   *
+   * @return The first name, {@code null} if no persons have been processed.
+   */
+  public String getAfterFirstName()
+  {
+    return afterFirstName;
+  }
+
+  /**
+   * Gets the unique identifier of the last person processed.
+   *
+   * @return The unique identifier, {@code null} if no persons have been
+   * processed.
+   */
+  public Long getAfterID()
+  {
+    return afterID;
+  }
+
+  /**
+   * Gets the last name of the last person processed.
+   *
+   * @return The last name, {@code null} if no persons have been processed.
+   */
+  public String getAfterLastName()
+  {
+    return afterLastName;
+  }
+
+  /**
+   * Gets when the rotation completed.
+   *
+   * @return The completion time, {@code null} if the rotation has not
+   * completed.
+   */
+  public Date getCompleted()
+  {
+    return completed;
+  }
+
+  /**
+   * Estimates when the rotation will complete, assuming that the remaining
+   * persons are processed at the same rate as those processed so far.
+   *
+   * @return The estimated completion time, the actual completion time if the
+   * rotation has completed, or {@code null} if no persons have been
+   * processed yet.
+   */
+  public Date getEstimatedCompletion()
+  {
+    if (completed != null)
+    {
+      return completed;
+    }
+
+    if (processed == 0)
+    {
+      return null;
+    }
+
+    final long elapsed = updated.getTime() - started.getTime();
+
+    return new Date(updated.getTime() + elapsed * Math.max(0, total - processed) / processed);
+  }
+
+  /**
+   * Gets the version of the passphrase that persons are re-encrypted with.
+   *
+   * @return The version of the passphrase.
+   */
+  public int getKeyVersion()
+  {
+    return keyVersion;
+  }
+
+  /**
+   * Gets the number of persons processed so far.
+   *
+   * @return The number of persons processed.
+   */
+  public long getProcessed()
+  {
+    return processed;
+  }
+
+  /**
+   * Gets the number of persons processed so far that needed to be
+   * re-encrypted.  Persons saved since the rotation started are already
+   * up-to-date and are not counted.
+   *
+   * @return The number of persons re-encrypted.
+   */
+  public long getRekeyed()
+  {
+    return rekeyed;
+  }
+
+  /**
+   * Gets when the rotation started.
+   *
+   * @return The start time.
+   */
+  public Date getStarted()
+  {
+    return started;
+  }
+
+  /**
+   * Gets the number of persons there were to process when the rotation
+   * started.
+   *
+   * @return The number of persons to process.
+   */
+  public long getTotal()
+  {
+    return total;
+  }
+
+  /**
+   * Gets when progress was last recorded.
+   *
+   * @return The time of the last update.
+   */
+  public Date getUpdated()
+  {
+    return updated;
+  }
+
+  /**
+   * Gets whether all persons have been processed.
+   *
+   * @return {@code true} if the rotation has completed, {@code false}
+   * otherwise.
+   */
+  public boolean isCompleted()
+  {
+    return completed != null;
+  }
+}
@@ -0,0 +1,106 @@
+package org.example.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+/**
+ * A version of the passphrase for persons added by a key rotation, stored
+ * wrapped (encrypted) with the initial version of the passphrase (see
+ * {@link Person#wrapPassphrase(String)}), along with the random salt that
+ * comes with it (see {@link org.example.security.keygen.Keyring}).  Versions are saved along with the
+ * {@link KeyRotation} that adds them, so that persons re-encrypted with a
+ * version remain readable, and an interrupted rotation can be resumed, after
+ * a restart.
+ */
+@Entity
+@Table(name = "key_version")
+public class KeyVersion extends Model
+{
+  @Column(name = "created")
+  @NotNull
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date created;
+
+  @Column(name = "key_version", unique = true)
+  @NotNull
+  private Integer keyVersion;
+
+  @Column(length = 1000, name = "passphrase")
+  @NotNull
+  private String passphrase;
+
+  @Column(length = 44, name = "salt")
+  @NotNull
+  private String salt;
+
+  /**
+   * Deliberately hidden to prevent direct instantiation.
+   */
+  KeyVersion()
+  {
+    super();
+  }
+
+  /**
+   * Creates a version of the passphrase.
+   *
+   * @param keyVersion The number of the version.
+   * @param passphrase The passphrase, wrapped.
+   * @param salt       The salt for the version, in {@code Base64}
+   *                   representation.
+   */
+  public KeyVersion(final int keyVersion, final String passphrase, final String salt)
+  {
+    this();
+
+    this.created = new Date();
+    this.keyVersion = keyVersion;
+    this.passphrase = passphrase;
+    this.salt = salt;
+  }
+
+  /**
+   * Gets when the version was added.
+   *
+   * @return The creation time.
+   */
+  public Date getCreated()
+  {
+    return created;
+  }
+
+  /**
+   * Gets the number of the version.
+   *
+   * @return The number of the version.
+   */
+  public int getKeyVersion()
+  {
+    return keyVersion;
+  }
+
+  /**
+   * Gets the passphrase, wrapped.
+   *
+   * @return The wrapped passphrase.
+   */
+  public String getPassphrase()
+  {
+    return passphrase;
+  }
+
+  /**
+   * Gets the salt for the version.
+   *
+   * @return The salt, in {@code Base64} representation.
+   */
+  public String getSalt()
+  {
+    return salt;
+  }
+}
@@ -1,20 +1,19 @@
 package org.example.domain;
 
-import org.hibernate.annotations.Generated;
-import org.hibernate.annotations.GenerationTime;
-
 import javax.persistence.*;
 
 /**
- * Represents a domain entity.
+ * Represents a domain entity.  Unique identifiers are allocated from a
+ * database sequence in blocks, so that a block of new entities can be
+ * inserted in a single JDBC batch without a round-trip for each identifier.
  */
 @MappedSuperclass
 public abstract class Model
 {
   @Column(name = "id")
-  @Generated(GenerationTime.INSERT)
-  @GeneratedValue(strategy = GenerationType.AUTO)
+  @GeneratedValue(generator = "model_sequence", strategy = GenerationType.SEQUENCE)
   @Id
+  @SequenceGenerator(allocationSize = 50, name = "model_sequence", sequenceName = "model_sequence")
   private Long id;
 
   /**
@@ -1,25 +1,64 @@
 package org.example.domain;
 
+import org.example.lang.Pair;
+import org.example.security.BlindIndexer;
 import org.example.security.Encrypter;
+import org.example.security.EncrypterRegistry;
+import org.example.security.keygen.CachingKeyGenerator;
 import org.example.security.keygen.FixedPassphraseProvider;
 import org.example.security.keygen.KeyGenerator;
-import org.example.security.keygen.PassphraseProvider;
+import org.example.security.keygen.KeyManager;
+import org.example.security.keygen.KeyParameters;
+import org.example.security.keygen.Keyring;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
-import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
+import java.security.Key;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
- * Represents a person.
+ * Represents a person.  The person's social benefits number is stored
+ * encrypted (see {@link EncryptedModel}), along with a blind index with
+ * which persons can be found by their social benefits number.  Persons are
+ * held in the second-level cache as stored, that is, encrypted.  Persons are
+ * indexed by name and unique identifier, the order in which they are
+ * listed.
  */
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Cacheable
 @Entity
-@Table(name = "person")
-public class Person extends Model
+@Table(indexes = { @Index(columnList = "first_name, last_name, id", name = "person_name_index")
+    , @Index(columnList = "social_benefits_number_index", name = "person_social_benefits_number_index") }
+    , name = "person")
+public class Person extends EncryptedModel
 {
-  private static final KeyGenerator       KEY_GENERATOR       = new KeyGenerator();
-  private static final PassphraseProvider PASSPHRASE_PROVIDER = new FixedPassphraseProvider();
+  private static final String            ENCRYPTER_CACHE_SIZE_PROPERTY  = "person.encrypterCacheSize";
+  private static final BlindIndexer      INDEXER                        = new BlindIndexer(new KeyGenerator()
+      , new FixedPassphraseProvider());
+  private static final Keyring           KEYRING                        = new Keyring(new FixedPassphraseProvider());
+  private static final String            KEY_MODE_PROPERTY              = "person.keyMode";
+  private static final String            KEY_ROUNDS_PROPERTY            = "person.keyRounds";
+  private static final KeyParameters     KEY_PARAMETERS                 = KeyParameters.DEFAULT.withRounds(Math.max(
+      KeyParameters.DEFAULT.getRounds(), Integer.getInteger(KEY_ROUNDS_PROPERTY, KeyParameters.DEFAULT.getRounds())));
+  private static final KeyManager        KEY_MANAGER                    = new KeyManager(
+      new CachingKeyGenerator(KEY_PARAMETERS)
+      , KEYRING
+      , KeyManager.Mode.valueOf(System.getProperty(KEY_MODE_PROPERTY, KeyManager.Mode.ENVELOPE.name())));
+  private static final EncrypterRegistry ENCRYPTERS                     = new EncrypterRegistry(KEY_MANAGER
+      , Integer.getInteger(ENCRYPTER_CACHE_SIZE_PROPERTY, 1000));
+  private static final String            SOCIAL_BENEFITS_NUMBER         = "socialBenefitsNumber";
+  private static final int               WARM_UP_ROUNDS                 = 2000;
+  private static final String            WARM_UP_VALUE                  = "000-00-0000";
 
   @Column(length = 50, name = "first_name")
   @NotNull
@@ -29,16 +68,18 @@ public class Person extends Model
   @NotNull
   private String lastName;
 
-  @Column(length = 1000, name = "secret")
-  @NotNull
-  private String secret;
-
   @Column(length = 1000, name = "social_benefits_number")
+  @Encrypted
   @NotNull
   private String socialBenefitsNumber;
 
-  @Transient
-  private transient Encrypter encrypter;
+  @Column(length = 44, name = "social_benefits_number_index")
+  @NotNull
+  private String socialBenefitsNumberIndex;
+
+  @Column(name = "version")
+  @Version
+  private Long version;
 
   /**
    * Deliberately hidden to prevent direct instantiation.
@@ -65,6 +106,109 @@ public class Person extends Model
     setSocialBenefitsNumber(socialBenefitsNumber);
   }
 
+  /**
+   * Decrypts the sensitive personal information for a number of persons in
+   * one go (see {@link EncryptedModel#decryptAll(List, Executor)}).
+   *
+   * @param persons  The persons to decrypt.
+   * @param executor The {@link Executor} to use for decrypting the persons.
+   * @return An immutable {@link List} of {@link PersonView}s, in the same
+   * order as {@code persons}.
+   */
+  public static List<PersonView> decrypt(final List<Person> persons, final Executor executor)
+  {
+    decryptAll(persons, executor);
+
+    return Collections.unmodifiableList(persons.stream().map(Person::toView).collect(Collectors.toList()));
+  }
+
+  /**
+   * Gets the parameters with which keys are derived for new persons, which
+   * are also the least that persons must be protected with to be up-to-date.
+   * The number of rounds is configured with the {@code person.keyRounds}
+   * system property, and is never fewer than for
+   * {@link KeyParameters#DEFAULT}.
+   *
+   * @return The {@link KeyParameters} for new persons.
+   */
+  public static KeyParameters getKeyParameters()
+  {
+    return KEY_PARAMETERS;
+  }
+
+  /**
+   * Gets the keyring holding the versions of the passphrase from which the
+   * keys for persons are derived.  Rotating the keyring makes new and saved
+   * persons use the new version, while persons saved with earlier versions
+   * remain readable until they are re-encrypted.
+   *
+   * @return The {@link Keyring}.
+   */
+  public static Keyring getKeyring()
+  {
+    return KEYRING;
+  }
+
+  /**
+   * Gets the blind index for a social benefits number, with which persons
+   * can be found by their social benefits number without decrypting it.
+   *
+   * @param socialBenefitsNumber A social benefits number, such as a
+   *                             {@code US Social Security Number}.
+   * @return The blind index for the social benefits number.
+   */
+  public static String index(final String socialBenefitsNumber)
+  {
+    return INDEXER.index(socialBenefitsNumber);
+  }
+
+  /**
+   * Unwraps a version of the passphrase for persons wrapped with
+   * {@link #wrapPassphrase(String)}.
+   *
+   * @param wrapped The wrapped passphrase.
+   * @return The passphrase.
+   */
+  public static String unwrapPassphrase(final String wrapped)
+  {
+    return KEY_MANAGER.unwrapPassphrase(wrapped);
+  }
+
+  /**
+   * Prepares the keys and algorithms used for persons, so that the first
+   * persons saved or read after the application starts are not slowed down
+   * by deriving the master key, seeding random number generators, looking
+   * up cryptographic providers or running code that the JIT compiler has
+   * not compiled yet.  A key is generated and recovered as for a new person,
+   * and a sample social benefits number is encrypted, decrypted and indexed
+   * repeatedly.  Stored persons and the encrypters shared between persons
+   * are not affected.
+   */
+  public static void warmUp()
+  {
+    final Pair<Key, String> pair = KEY_MANAGER.newKey();
+    final Encrypter encrypter = new Encrypter(KEY_MANAGER.getKey(pair.getItem2()));
+
+    for (int i = 0; i < WARM_UP_ROUNDS; ++i)
+    {
+      encrypter.decrypt(encrypter.encrypt(WARM_UP_VALUE));
+      index(WARM_UP_VALUE);
+    }
+  }
+
+  /**
+   * Wraps (encrypts) a version of the passphrase for persons with the initial
+   * version, so that it can be stored, for example, when it is added by a
+   * key rotation.
+   *
+   * @param passphrase The passphrase to wrap.
+   * @return The wrapped passphrase.
+   */
+  public static String wrapPassphrase(final String passphrase)
+  {
+    return KEY_MANAGER.wrapPassphrase(passphrase);
+  }
+
   /**
    * Gets the person's first name.
    *
@@ -94,7 +238,7 @@ public class Person extends Model
    */
   public String getSocialBenefitsNumber()
   {
-    return getEncrypter().decrypt(socialBenefitsNumber);
+    return getDecrypted(SOCIAL_BENEFITS_NUMBER);
   }
 
   /**
@@ -124,49 +268,31 @@ public class Person extends Model
    * @param socialBenefitsNumber The person's social benefits number, such as
    *                             a {@code US Social Security Number}.
    */
-  public void setSocialBenefitsNumber(String socialBenefitsNumber)
+  public void setSocialBenefitsNumber(final String socialBenefitsNumber)
   {
-    this.socialBenefitsNumber = getEncrypter().encrypt(socialBenefitsNumber);
-  }
-
-  /**
-   * Gets an encrypter that can encrypt and decrypt sensitive personal
-   * information.
-   *
-   * @return An encrypter that can encrypt and decrypt sensitive personal
-   * information.
-   */
-  private Encrypter getEncrypter()
-  {
-    return new Encrypter(KEY_GENERATOR.generateKey(getPassphrase(), getSecret()).getItem1());
+    if (setDecrypted(SOCIAL_BENEFITS_NUMBER, socialBenefitsNumber))
+    {
+      this.socialBenefitsNumberIndex = index(socialBenefitsNumber);
+    }
   }
 
   /**
-   * Gets a passphrase to use for generating the encryption key required for
-   * encrypting and decrypting sensitive personal information.
-   *
-   * @return A passphrase to use for generating the encryption key required for
-   * encrypting and decrypting sensitive personal information.
+   * {@inheritDoc}
    */
-  private String getPassphrase()
+  @Override
+  protected EncrypterRegistry getEncrypters()
   {
-    return PASSPHRASE_PROVIDER.getPassphrase();
+    return ENCRYPTERS;
   }
 
   /**
-   * Gets a secret that is specific to this person and not shared with any
-   * other person.  The secret is guaranteed to be cryptographically strong,
-   * that is, it cannot be guessed.
+   * Gets a read-only view of this person, with the social benefits number
+   * decrypted.
    *
-   * @return A secret that is specific to this person.
+   * @return A {@link PersonView}.
    */
-  private String getSecret()
+  private PersonView toView()
   {
-    if (secret == null)
-    {
-      secret = KEY_GENERATOR.generateKey(getPassphrase()).getItem2();
-    }
-
-    return secret;
+    return new PersonView(getID(), getFirstName(), getLastName(), getSocialBenefitsNumber());
   }
 }
@@ -0,0 +1,57 @@
+package org.example.domain;
+
+/**
+ * The name of a {@link Person}, read from the database without the rest of
+ * the person, for screens that need only names.
+ */
+public final class PersonName
+{
+  private final String firstName;
+  private final Long   id;
+  private final String lastName;
+
+  /**
+   * Creates the name of a person.  Public so that queries can create names
+   * with constructor expressions.
+   *
+   * @param id        The unique identifier for the person.
+   * @param firstName The person's first name.
+   * @param lastName  The person's last name.
+   */
+  public PersonName(final Long id, final String firstName, final String lastName)
+  {
+    this.firstName = firstName;
+    this.id = id;
+    this.lastName = lastName;
+  }
+
+  /**
+   * Gets the person's first name.
+   *
+   * @return The person's first name.
+   */
+  public String getFirstName()
+  {
+    return firstName;
+  }
+
+  /**
+   * Gets the unique identifier for the person.
+   *
+   * @return The unique identifier for the person.
+   */
+  public Long getID()
+  {
+    return id;
+  }
+
+  /**
+   * Gets the person's last name.
+   *
+   * @return The person's last name.
+   */
+  public String getLastName()
+  {
+    return lastName;
+  }
+}
@@ -0,0 +1,71 @@
+package org.example.domain;
+
+/**
+ * An immutable, decrypted view of a {@link Person}, suitable for display.
+ */
+public final class PersonView
+{
+  private final String firstName;
+  private final Long   id;
+  private final String lastName;
+  private final String socialBenefitsNumber;
+
+  /**
+   * Creates a view of a person.
+   *
+   * @param id                   The unique identifier for the person.
+   * @param firstName            The person's first name.
+   * @param lastName             The person's last name.
+   * @param socialBenefitsNumber The person's decrypted social benefits
+   *                             number.
+   */
+  PersonView(final Long id, final String firstName, final String lastName, final String socialBenefitsNumber)
+  {
+    this.firstName = firstName;
+    this.id = id;
+    this.lastName = lastName;
+    this.socialBenefitsNumber = socialBenefitsNumber;
+  }
+
+  /**
+   * Gets the person's first name.
+   *
+   * @return The person's first name.
+   */
+  public String getFirstName()
+  {
+    return firstName;
+  }
+
+  /**
+   * Gets the unique identifier for the person.
+   *
+   * @return The unique identifier for the person.
+   */
+  public Long getID()
+  {
+    return id;
+  }
+
+  /**
+   * Gets the person's last name.
+   *
+   * @return The person's last name.
+   */
+  public String getLastName()
+  {
+    return lastName;
+  }
+
+  /**
+   * Gets the person's social benefits number, such as a
+   * {@code US Social Security Number}.
+   *
+   * @return The person's social benefits number, such as a
+   * {@code US Social Security Number}.
+   */
+  public String getSocialBenefitsNumber()
+  {
+    return socialBenefitsNumber;
+  }
+}
@@ -0,0 +1,133 @@
+package org.example.metrics;
+
+import org.example.lang.Pair;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.ConcurrentStatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds Hibernate statistics that also count hits, misses and puts for the
+ * second-level and query caches, by cache region, so that the hit ratio of
+ * each region can be monitored.  Registered with Hibernate through the
+ * {@code hibernate.stats.factory} property, and requires
+ * {@code hibernate.generate_statistics} to be enabled.
+ */
+public class CacheStatisticsFactory implements StatisticsFactory
+{
+  private static final String HITS   = "cache_hits";
+  private static final String MISSES = "cache_misses";
+  private static final String PUTS   = "cache_puts";
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public StatisticsImplementor buildStatistics(final SessionFactoryImplementor sessionFactory)
+  {
+    return new CacheStatistics(sessionFactory);
+  }
+
+  /**
+   * Hibernate statistics that count cache events in the metric registry as
+   * well as in Hibernate's own statistics.
+   */
+  private static final class CacheStatistics extends ConcurrentStatisticsImpl
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final ConcurrentMap<Pair<String, String>, MetricId> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Creates statistics for a session factory.
+     *
+     * @param sessionFactory The session factory.
+     */
+    private CacheStatistics(final SessionFactoryImplementor sessionFactory)
+    {
+      super(sessionFactory);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void queryCacheHit(final String hql, final String region)
+    {
+      super.queryCacheHit(hql, region);
+
+      count(HITS, region);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void queryCacheMiss(final String hql, final String region)
+    {
+      super.queryCacheMiss(hql, region);
+
+      count(MISSES, region);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void queryCachePut(final String hql, final String region)
+    {
+      super.queryCachePut(hql, region);
+
+      count(PUTS, region);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void secondLevelCacheHit(final String region)
+    {
+      super.secondLevelCacheHit(region);
+
+      count(HITS, region);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void secondLevelCacheMiss(final String region)
+    {
+      super.secondLevelCacheMiss(region);
+
+      count(MISSES, region);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void secondLevelCachePut(final String region)
+    {
+      super.secondLevelCachePut(region);
+
+      count(PUTS, region);
+    }
+
+    /**
+     * Counts a cache event.
+     *
+     * @param metric The name of the metric for the event.
+     * @param region The cache region.
+     */
+    private void count(final String metric, final String region)
+    {
+      final MetricId id = ids.computeIfAbsent(Pair.of(metric, region), key -> new MetricId(metric, "region", region));
+
+      Metrics.getRegistry().counter(id).increment();
+    }
+  }
+}
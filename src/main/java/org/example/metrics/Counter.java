@@ -0,0 +1,30 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events, such as cache hits.  Counters can be incremented by many
+ * threads at once without contention.
+ */
+public class Counter implements Metric
+{
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Gets the number of events counted so far.
+   *
+   * @return The number of events counted.
+   */
+  public long getCount()
+  {
+    return count.sum();
+  }
+
+  /**
+   * Counts an event.
+   */
+  public void increment()
+  {
+    count.increment();
+  }
+}
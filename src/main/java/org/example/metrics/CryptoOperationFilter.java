@@ -0,0 +1,143 @@
+package org.example.metrics;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Records the duration of each request, and the number of cryptographic
+ * operations performed for it, so that pages that decrypt more than they
+ * need to stand out.  A request that continues asynchronously is recorded
+ * when it completes, rather than when the filter chain returns.
+ */
+public class CryptoOperationFilter implements Filter
+{
+  private static final long[]   OPERATION_BOUNDS = { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+  private static final MetricId OPERATIONS       = new MetricId("http_request_crypto_operations");
+  private static final MetricId REQUESTS         = new MetricId("http_request");
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy()
+  {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+      throws IOException, ServletException
+  {
+    final long start = System.nanoTime();
+
+    Metrics.beginRequest();
+
+    try
+    {
+      chain.doFilter(request, response);
+    }
+    finally
+    {
+      if (request.isAsyncStarted())
+      {
+        request.getAsyncContext().addListener(new CompletionListener(start, Metrics.detachRequest()));
+      }
+      else
+      {
+        record(start, Metrics.endRequest());
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void init(final FilterConfig config)
+  {
+  }
+
+  /**
+   * Records a request that has completed.
+   *
+   * @param start      The value of {@link System#nanoTime()} when the
+   *                   request started.
+   * @param operations The number of cryptographic operations performed for
+   *                   the request.
+   */
+  private static void record(final long start, final long operations)
+  {
+    final MetricRegistry registry = Metrics.getRegistry();
+
+    registry.histogram(OPERATIONS, OPERATION_BOUNDS).record(operations);
+    registry.timer(REQUESTS).stop(start);
+  }
+
+  /**
+   * Records a request that continued asynchronously, once it completes.
+   */
+  private static final class CompletionListener implements AsyncListener
+  {
+    private final LongSupplier operations;
+    private final long         start;
+
+    /**
+     * Creates a listener for a request.
+     *
+     * @param start      The value of {@link System#nanoTime()} when the
+     *                   request started.
+     * @param operations The number of cryptographic operations performed for
+     *                   the request, once it has completed.
+     */
+    private CompletionListener(final long start, final LongSupplier operations)
+    {
+      this.operations = operations;
+      this.start = start;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onComplete(final AsyncEvent event)
+    {
+      record(start, operations.getAsLong());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError(final AsyncEvent event)
+    {
+    }
+
+    /**
+     * Keeps listening if the request continues asynchronously again, as
+     * listeners are removed each time it does.
+     */
+    @Override
+    public void onStartAsync(final AsyncEvent event)
+    {
+      event.getAsyncContext().addListener(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTimeout(final AsyncEvent event)
+    {
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the distribution of a value, such as the number of operations
+ * performed for a request, by counting the values that fall into each of a
+ * fixed set of buckets.  Values can be recorded by many threads at once
+ * without contention.
+ */
+public class Histogram implements Metric
+{
+  private final long[]      bounds;
+  private final LongAdder[] buckets;
+  private final LongAdder   count = new LongAdder();
+  private final AtomicLong  max   = new AtomicLong();
+  private final LongAdder   sum   = new LongAdder();
+
+  /**
+   * Creates a histogram.
+   *
+   * @param bounds The inclusive upper bounds of the buckets, in ascending
+   *               order.  Values greater than the last bound are counted
+   *               only in the total.
+   */
+  public Histogram(final long... bounds)
+  {
+    this.bounds = bounds.clone();
+    this.buckets = new LongAdder[bounds.length];
+
+    for (int i = 0; i < buckets.length; ++i)
+    {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Gets the upper bounds of the buckets.
+   *
+   * @return The inclusive upper bounds of the buckets, in ascending order.
+   */
+  public long[] getBounds()
+  {
+    return bounds.clone();
+  }
+
+  /**
+   * Gets the number of values recorded in each bucket, including the values
+   * recorded in all the buckets before it.
+   *
+   * @return The cumulative number of values in each bucket, in the same
+   * order as {@link #getBounds()}.
+   */
+  public long[] getCumulativeCounts()
+  {
+    final long[] counts = new long[buckets.length];
+
+    long total = 0;
+    for (int i = 0; i < buckets.length; ++i)
+    {
+      total += buckets[i].sum();
+
+      counts[i] = total;
+    }
+
+    return counts;
+  }
+
+  /**
+   * Gets the number of values recorded.
+   *
+   * @return The number of values recorded.
+   */
+  public long getCount()
+  {
+    return count.sum();
+  }
+
+  /**
+   * Gets the largest value recorded.
+   *
+   * @return The largest value recorded, {@code 0} if no values have been
+   * recorded.
+   */
+  public long getMax()
+  {
+    return max.get();
+  }
+
+  /**
+   * Gets the sum of the values recorded.
+   *
+   * @return The sum of the values recorded.
+   */
+  public long getSum()
+  {
+    return sum.sum();
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value The value to record.
+   */
+  public void record(final long value)
+  {
+    count.increment();
+    sum.add(value);
+
+    for (int i = 0; i < bounds.length; ++i)
+    {
+      if (value <= bounds[i])
+      {
+        buckets[i].increment();
+
+        break;
+      }
+    }
+
+    long current = max.get();
+
+    while (value > current && !max.compareAndSet(current, value))
+    {
+      current = max.get();
+    }
+  }
+}
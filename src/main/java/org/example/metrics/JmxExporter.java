@@ -0,0 +1,189 @@
+package org.example.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publishes the metrics in the application-wide {@link MetricRegistry} as
+ * read-only attributes of a single MBean, named
+ * {@code org.example:type=Metrics}, so that they can be inspected with
+ * standard JMX tools.  Each metric contributes one attribute for a counter,
+ * and attributes for the count, sum and maximum of a histogram.  Durations
+ * are published in nanoseconds.
+ */
+public class JmxExporter
+{
+  private static final String OBJECT_NAME = "org.example:type=Metrics";
+
+  private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+  private ObjectName name;
+
+  /**
+   * Registers the MBean, replacing any MBean registered earlier with the
+   * same name, for example, by a previous deployment of the application.
+   */
+  public void start()
+  {
+    try
+    {
+      name = new ObjectName(OBJECT_NAME);
+
+      if (server.isRegistered(name))
+      {
+        server.unregisterMBean(name);
+      }
+
+      server.registerMBean(new MetricsMBean(), name);
+    }
+    catch (final Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Unregisters the MBean.
+   */
+  public void stop()
+  {
+    try
+    {
+      if (name != null && server.isRegistered(name))
+      {
+        server.unregisterMBean(name);
+      }
+    }
+    catch (final Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Exposes the current metrics as MBean attributes.
+   */
+  private static final class MetricsMBean implements DynamicMBean
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException
+    {
+      final Object value = getValues().get(attribute);
+
+      if (value == null)
+      {
+        throw new AttributeNotFoundException(attribute);
+      }
+
+      return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AttributeList getAttributes(final String[] attributes)
+    {
+      final Map<String, Long> values = getValues();
+      final AttributeList list = new AttributeList();
+
+      for (final String attribute : attributes)
+      {
+        if (values.containsKey(attribute))
+        {
+          list.add(new Attribute(attribute, values.get(attribute)));
+        }
+      }
+
+      return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+      final Map<String, Long> values = getValues();
+      final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+
+      int i = 0;
+      for (final String attribute : values.keySet())
+      {
+        attributes[i++] = new MBeanAttributeInfo(attribute, Long.class.getName(), attribute, true, false, false);
+      }
+
+      return new MBeanInfo(getClass().getName(), "Application metrics.", attributes, null, null, null);
+    }
+
+    /**
+     * Not supported, there are no operations.
+     */
+    @Override
+    public Object invoke(final String action, final Object[] parameters, final String[] signature)
+    {
+      throw new UnsupportedOperationException("Operation [" + action + "] is not supported.");
+    }
+
+    /**
+     * Not supported, all attributes are read-only.
+     */
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException
+    {
+      throw new AttributeNotFoundException("Attribute [" + attribute.getName() + "] is read-only.");
+    }
+
+    /**
+     * Not supported, all attributes are read-only.
+     */
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes)
+    {
+      return new AttributeList();
+    }
+
+    /**
+     * Gets the current values of all the attributes.
+     *
+     * @return The attribute values, by attribute name.
+     */
+    private Map<String, Long> getValues()
+    {
+      final Map<String, Long> values = new LinkedHashMap<>();
+
+      for (final Map.Entry<MetricId, Metric> entry : Metrics.getRegistry().getMetrics().entrySet())
+      {
+        final String id = entry.getKey().toString();
+        final Metric metric = entry.getValue();
+
+        if (metric instanceof Counter)
+        {
+          values.put(id, ((Counter) metric).getCount());
+        }
+        else if (metric instanceof Histogram)
+        {
+          final Histogram histogram = (Histogram) metric;
+
+          values.put(id + ".count", histogram.getCount());
+          values.put(id + ".max", histogram.getMax());
+          values.put(id + ".sum", histogram.getSum());
+        }
+      }
+
+      return values;
+    }
+  }
+}
@@ -0,0 +1,8 @@
+package org.example.metrics;
+
+/**
+ * Marker for a measurement kept by a {@link MetricRegistry}.
+ */
+public interface Metric
+{
+}
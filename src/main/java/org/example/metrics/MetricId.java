@@ -0,0 +1,130 @@
+package org.example.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Identifies a metric by its name and a set of tags, such as
+ * {@code crypto_encrypt{size="1024"}}.  Metrics with the same name but
+ * different tags are measured separately but exported together.
+ */
+public final class MetricId implements Comparable<MetricId>
+{
+  private final String              name;
+  private final Map<String, String> tags;
+  private final String              text;
+
+  /**
+   * Creates an identifier.
+   *
+   * @param name The name of the metric, which must consist of letters,
+   *             digits and underscores.
+   * @param tags The tags for the metric, as alternating keys and values.
+   * @throws NullPointerException     if {@code name} is {@code null}.
+   * @throws IllegalArgumentException if {@code tags} does not have a value
+   *                                  for every key.
+   */
+  public MetricId(final String name, final String... tags)
+  {
+    if (name == null)
+    {
+      throw new NullPointerException("Argument [name] must not be null.");
+    }
+
+    if (tags.length % 2 != 0)
+    {
+      throw new IllegalArgumentException("Tags " + Arrays.toString(tags) + " must be key-value pairs.");
+    }
+
+    this.name = name;
+    this.tags = new TreeMap<>();
+
+    for (int i = 0; i < tags.length; i += 2)
+    {
+      this.tags.put(tags[i], tags[i + 1]);
+    }
+
+    final StringBuilder text = new StringBuilder(name);
+
+    if (!this.tags.isEmpty())
+    {
+      text.append('{').append(getLabels()).append('}');
+    }
+
+    this.text = text.toString();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int compareTo(final MetricId other)
+  {
+    // Order by name first, so that metrics with the same name are together.
+    final int names = name.compareTo(other.name);
+
+    return names == 0 ? text.compareTo(other.text) : names;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(final Object other)
+  {
+    return other instanceof MetricId && text.equals(((MetricId) other).text);
+  }
+
+  /**
+   * Gets the tags for the metric, formatted as a comma-separated list of
+   * {@code key="value"} pairs, in key order.
+   *
+   * @return The tags, an empty {@link String} if there are none.
+   */
+  public String getLabels()
+  {
+    final StringBuilder labels = new StringBuilder();
+
+    for (final Map.Entry<String, String> tag : tags.entrySet())
+    {
+      if (labels.length() > 0)
+      {
+        labels.append(',');
+      }
+
+      labels.append(tag.getKey()).append("=\"").append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""))
+            .append('"');
+    }
+
+    return labels.toString();
+  }
+
+  /**
+   * Gets the name of the metric.
+   *
+   * @return The name of the metric.
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    return text.hashCode();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return text;
+  }
+}
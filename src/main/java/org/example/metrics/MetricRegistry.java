@@ -0,0 +1,98 @@
+package org.example.metrics;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the metrics for an application, creating each metric the first time
+ * it is asked for.  Exporters, such as {@link JmxExporter} and
+ * {@link PrometheusServlet}, read the metrics from a registry and publish
+ * them.
+ */
+public class MetricRegistry
+{
+  private final ConcurrentMap<MetricId, Metric> metrics = new ConcurrentHashMap<>();
+
+  /**
+   * Gets a counter, creating it if required.
+   *
+   * @param id The identifier for the counter.
+   * @return A {@link Counter}.
+   * @throws IllegalArgumentException if a metric of another type exists with
+   *                                  the same identifier.
+   */
+  public Counter counter(final MetricId id)
+  {
+    return get(id, Counter.class, Counter::new);
+  }
+
+  /**
+   * Gets all the metrics in the registry.
+   *
+   * @return An immutable {@link SortedMap} of the metrics, by identifier.
+   */
+  public SortedMap<MetricId, Metric> getMetrics()
+  {
+    return Collections.unmodifiableSortedMap(new TreeMap<>(metrics));
+  }
+
+  /**
+   * Gets a histogram, creating it if required.
+   *
+   * @param id     The identifier for the histogram.
+   * @param bounds The upper bounds for the buckets of the histogram, if it
+   *               has to be created.
+   * @return A {@link Histogram}.
+   * @throws IllegalArgumentException if a metric of another type exists with
+   *                                  the same identifier.
+   */
+  public Histogram histogram(final MetricId id, final long... bounds)
+  {
+    return get(id, Histogram.class, () -> new Histogram(bounds));
+  }
+
+  /**
+   * Gets a timer, creating it if required.
+   *
+   * @param id The identifier for the timer.
+   * @return A {@link Timer}.
+   * @throws IllegalArgumentException if a metric of another type exists with
+   *                                  the same identifier.
+   */
+  public Timer timer(final MetricId id)
+  {
+    return get(id, Timer.class, Timer::new);
+  }
+
+  /**
+   * Gets a metric of a specified type, creating it if required.
+   *
+   * @param id      The identifier for the metric.
+   * @param type    The type of the metric.
+   * @param factory Creates the metric if it does not exist.
+   * @param <T>     The type of the metric.
+   * @return The metric.
+   * @throws IllegalArgumentException if a metric of another type exists with
+   *                                  the same identifier.
+   */
+  private <T extends Metric> T get(final MetricId id, final Class<T> type, final Supplier<T> factory)
+  {
+    Metric metric = metrics.get(id);
+
+    if (metric == null)
+    {
+      metric = metrics.computeIfAbsent(id, key -> factory.get());
+    }
+
+    if (metric.getClass() != type)
+    {
+      throw new IllegalArgumentException("Metric [" + id + "] is not a " + type.getSimpleName() + ".");
+    }
+
+    return type.cast(metric);
+  }
+}
@@ -0,0 +1,188 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Gives code that is not managed by Spring, such as the cryptography
+ * classes, access to the application-wide {@link MetricRegistry}, and keeps
+ * count of the cryptographic operations performed for each request.
+ *
+ * <p>Requests are tracked per thread.  Work that is handed off to other
+ * threads on behalf of a request must be wrapped with
+ * {@link #propagate(Runnable)} or {@link #propagate(Supplier)} for its
+ * operations to count towards the request.</p>
+ */
+public final class Metrics
+{
+  private static final ThreadLocal<LongAdder> REQUEST_OPERATIONS = new ThreadLocal<>();
+
+  private static volatile MetricRegistry registry = new MetricRegistry();
+
+  /**
+   * Deliberately hidden to prevent instantiation.
+   */
+  private Metrics()
+  {
+  }
+
+  /**
+   * Starts counting the cryptographic operations performed for a request on
+   * the current thread.
+   */
+  public static void beginRequest()
+  {
+    REQUEST_OPERATIONS.set(new LongAdder());
+  }
+
+  /**
+   * Stops tracking a request on the current thread without ending it, for a
+   * request that continues asynchronously on other threads.  Operations
+   * performed by work handed off for the request with
+   * {@link #propagate(Runnable)} or {@link #propagate(Supplier)} continue to
+   * count towards it.
+   *
+   * @return A {@link LongSupplier} of the number of operations performed for
+   * the request, to be read once the request has completed.
+   */
+  public static LongSupplier detachRequest()
+  {
+    final LongAdder operations = REQUEST_OPERATIONS.get();
+
+    REQUEST_OPERATIONS.remove();
+
+    return operations == null ? () -> 0 : operations::sum;
+  }
+
+  /**
+   * Stops counting the cryptographic operations performed for a request on
+   * the current thread.
+   *
+   * @return The number of operations performed for the request, {@code 0}
+   * if no request was being tracked.
+   */
+  public static long endRequest()
+  {
+    final LongAdder operations = REQUEST_OPERATIONS.get();
+
+    REQUEST_OPERATIONS.remove();
+
+    return operations == null ? 0 : operations.sum();
+  }
+
+  /**
+   * Gets the application-wide metric registry.
+   *
+   * @return The {@link MetricRegistry}.
+   */
+  public static MetricRegistry getRegistry()
+  {
+    return registry;
+  }
+
+  /**
+   * Wraps a task so that the cryptographic operations it performs count
+   * towards the request being tracked on the current thread, whichever
+   * thread the task runs on.
+   *
+   * @param task The task to wrap.
+   * @return The wrapped task, or {@code task} itself if no request is being
+   * tracked.
+   */
+  public static Runnable propagate(final Runnable task)
+  {
+    if (REQUEST_OPERATIONS.get() == null)
+    {
+      return task;
+    }
+
+    final Supplier<?> wrapped = propagate(() -> {
+      task.run();
+
+      return null;
+    });
+
+    return wrapped::get;
+  }
+
+  /**
+   * Wraps a task so that the cryptographic operations it performs count
+   * towards the request being tracked on the current thread, whichever
+   * thread the task runs on.
+   *
+   * @param task The task to wrap.
+   * @param <T>  The type of result produced by the task.
+   * @return The wrapped task, or {@code task} itself if no request is being
+   * tracked.
+   */
+  public static <T> Supplier<T> propagate(final Supplier<T> task)
+  {
+    final LongAdder operations = REQUEST_OPERATIONS.get();
+
+    if (operations == null)
+    {
+      return task;
+    }
+
+    return () -> {
+      final LongAdder previous = REQUEST_OPERATIONS.get();
+
+      REQUEST_OPERATIONS.set(operations);
+
+      try
+      {
+        return task.get();
+      }
+      finally
+      {
+        if (previous == null)
+        {
+          REQUEST_OPERATIONS.remove();
+        }
+        else
+        {
+          REQUEST_OPERATIONS.set(previous);
+        }
+      }
+    };
+  }
+
+  /**
+   * Records a cryptographic operation: its duration, in the timer with a
+   * specified identifier, and its occurrence, for the request being tracked
+   * on the current thread.
+   *
+   * @param id    The identifier of the timer for the operation.
+   * @param start The value of {@link System#nanoTime()} when the operation
+   *              started.
+   */
+  public static void recordCryptoOperation(final MetricId id, final long start)
+  {
+    registry.timer(id).stop(start);
+
+    final LongAdder operations = REQUEST_OPERATIONS.get();
+
+    if (operations != null)
+    {
+      operations.increment();
+    }
+  }
+
+  /**
+   * Replaces the application-wide metric registry, for example, with one
+   * that is shared with other components.
+   *
+   * @param registry The {@link MetricRegistry} to use.
+   * @throws NullPointerException if {@code registry} is {@code null}.
+   */
+  public static void setRegistry(final MetricRegistry registry)
+  {
+    if (registry == null)
+    {
+      throw new NullPointerException("Argument [registry] must not be null.");
+    }
+
+    Metrics.registry = registry;
+  }
+}
@@ -0,0 +1,131 @@
+package org.example.metrics;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the metrics in the application-wide {@link MetricRegistry} in
+ * the Prometheus text exposition format, so that they can be scraped by a
+ * Prometheus server.  Counters are published with a {@code _total} suffix,
+ * and timers as histograms in seconds, with a {@code _seconds} suffix.
+ */
+public class PrometheusServlet extends HttpServlet
+{
+  private static final String CONTENT_TYPE     = "text/plain; version=0.0.4; charset=utf-8";
+  private static final long   serialVersionUID = 1L;
+
+  /**
+   * Writes the metrics in a registry in the Prometheus text exposition
+   * format.
+   *
+   * @param registry The {@link MetricRegistry} to write.
+   * @param writer   The {@link PrintWriter} to write to.
+   */
+  static void write(final MetricRegistry registry, final PrintWriter writer)
+  {
+    String family = null;
+
+    for (final Map.Entry<MetricId, Metric> entry : registry.getMetrics().entrySet())
+    {
+      final MetricId id = entry.getKey();
+      final Metric metric = entry.getValue();
+
+      if (metric instanceof Counter)
+      {
+        final String name = id.getName() + "_total";
+
+        family = writeType(writer, family, name, "counter");
+
+        writer.println(name + labels(id, null) + " " + ((Counter) metric).getCount());
+      }
+      else if (metric instanceof Histogram)
+      {
+        final Histogram histogram = (Histogram) metric;
+        final boolean timer = metric instanceof Timer;
+        final String name = timer ? id.getName() + "_seconds" : id.getName();
+        final double scale = timer ? TimeUnit.SECONDS.toNanos(1) : 1;
+        final long[] bounds = histogram.getBounds();
+        final long[] counts = histogram.getCumulativeCounts();
+        final long count = Math.max(histogram.getCount(), counts.length == 0 ? 0 : counts[counts.length - 1]);
+
+        family = writeType(writer, family, name, "histogram");
+
+        for (int i = 0; i < bounds.length; ++i)
+        {
+          writer.println(name + "_bucket" + labels(id, "le=\"" + format(bounds[i], scale) + "\"") + " " + counts[i]);
+        }
+
+        writer.println(name + "_bucket" + labels(id, "le=\"+Inf\"") + " " + count);
+        writer.println(name + "_sum" + labels(id, null) + " " + format(histogram.getSum(), scale));
+        writer.println(name + "_count" + labels(id, null) + " " + count);
+      }
+    }
+  }
+
+  /**
+   * Writes the metrics in the application-wide registry.
+   */
+  @Override
+  protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException
+  {
+    response.setContentType(CONTENT_TYPE);
+
+    write(Metrics.getRegistry(), response.getWriter());
+  }
+
+  /**
+   * Formats a value for publishing.
+   *
+   * @param value The value to format.
+   * @param scale The number by which to divide the value.
+   * @return The formatted value.
+   */
+  private static String format(final long value, final double scale)
+  {
+    return scale == 1 ? Long.toString(value) : Double.toString(value / scale);
+  }
+
+  /**
+   * Formats the labels for a sample.
+   *
+   * @param id    The identifier of the metric.
+   * @param extra An additional label for the sample, {@code null} if there
+   *              is none.
+   * @return The labels, an empty {@link String} if there are none.
+   */
+  private static String labels(final MetricId id, final String extra)
+  {
+    final String labels = id.getLabels();
+
+    if (extra == null)
+    {
+      return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    return labels.isEmpty() ? "{" + extra + "}" : "{" + labels + "," + extra + "}";
+  }
+
+  /**
+   * Writes the type of a metric family, if it has not been written already.
+   *
+   * @param writer The {@link PrintWriter} to write to.
+   * @param family The name of the last family written.
+   * @param name   The name of the family.
+   * @param type   The type of the family.
+   * @return The name of the family.
+   */
+  private static String writeType(final PrintWriter writer, final String family, final String name, final String type)
+  {
+    if (!name.equals(family))
+    {
+      writer.println("# TYPE " + name + " " + type);
+    }
+
+    return name;
+  }
+}
@@ -0,0 +1,43 @@
+package org.example.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times every call to a data access repository, by method name.
+ */
+@Aspect
+public class RepositoryMetricsAspect
+{
+  private static final String METRIC = "repository_query";
+
+  private final ConcurrentMap<String, MetricId> ids = new ConcurrentHashMap<>();
+
+  /**
+   * Times a call to a repository.
+   *
+   * @param call The call.
+   * @return The result of the call.
+   * @throws Throwable if the call fails.
+   */
+  @Around("this(org.example.data.ModelRepository)")
+  public Object time(final ProceedingJoinPoint call) throws Throwable
+  {
+    final long start = System.nanoTime();
+
+    try
+    {
+      return call.proceed();
+    }
+    finally
+    {
+      final MetricId id = ids.computeIfAbsent(call.getSignature().getName(), method -> new MetricId(METRIC, "method", method));
+
+      Metrics.getRegistry().timer(id).stop(start);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package org.example.metrics;
+
+/**
+ * A family of metrics with the same name, tagged by the size of the payload
+ * they measure, so that, for example, the time taken to encrypt small and
+ * large payloads can be told apart.  The identifiers are created up front,
+ * so looking one up costs nothing more than a comparison per size bucket.
+ */
+public final class SizeTaggedMetric
+{
+  private static final String SIZE_TAG = "size";
+
+  private final int[]      bounds;
+  private final MetricId[] ids;
+
+  /**
+   * Creates a family of metrics.
+   *
+   * @param name   The name of the metrics.
+   * @param bounds The inclusive upper bounds of the size buckets, in bytes,
+   *               in ascending order.  Larger payloads are tagged
+   *               {@code +Inf}.
+   */
+  public SizeTaggedMetric(final String name, final int... bounds)
+  {
+    this.bounds = bounds.clone();
+    this.ids = new MetricId[bounds.length + 1];
+
+    for (int i = 0; i < bounds.length; ++i)
+    {
+      ids[i] = new MetricId(name, SIZE_TAG, Integer.toString(bounds[i]));
+    }
+
+    ids[bounds.length] = new MetricId(name, SIZE_TAG, "+Inf");
+  }
+
+  /**
+   * Gets the identifier of the metric for a payload size.
+   *
+   * @param size The size of the payload, in bytes.
+   * @return The {@link MetricId} for the size.
+   */
+  public MetricId forSize(final int size)
+  {
+    int i = 0;
+
+    while (i < bounds.length && size > bounds[i])
+    {
+      ++i;
+    }
+
+    return ids[i];
+  }
+}
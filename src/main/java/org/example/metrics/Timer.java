@@ -0,0 +1,57 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long an operation takes, as a {@link Histogram} of durations
+ * in nanoseconds.  The buckets range from one microsecond to ten seconds,
+ * which covers everything from a single cipher operation to a slow database
+ * query.
+ */
+public class Timer extends Histogram
+{
+  private static final long[] BOUNDS = {
+      1_000L, 5_000L
+      , 10_000L, 50_000L
+      , 100_000L, 500_000L
+      , 1_000_000L, 5_000_000L
+      , 10_000_000L, 50_000_000L
+      , 100_000_000L, 500_000_000L
+      , 1_000_000_000L, 5_000_000_000L
+      , 10_000_000_000L };
+
+  /**
+   * Creates a timer.
+   */
+  public Timer()
+  {
+    super(BOUNDS);
+  }
+
+  /**
+   * Gets the total time recorded.
+   *
+   * @param unit The unit in which to get the time.
+   * @return The total time recorded.
+   */
+  public double getTotalTime(final TimeUnit unit)
+  {
+    return (double) getSum() / unit.toNanos(1);
+  }
+
+  /**
+   * Records the time elapsed since an operation started.
+   *
+   * @param start The value of {@link System#nanoTime()} when the operation
+   *              started.
+   * @return The time elapsed, in nanoseconds.
+   */
+  public long stop(final long start)
+  {
+    final long elapsed = System.nanoTime() - start;
+
+    record(elapsed);
+
+    return elapsed;
+  }
+}
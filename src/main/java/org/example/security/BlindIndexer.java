@@ -0,0 +1,159 @@
+package org.example.security;
+
+import org.example.lang.Pair;
+import org.example.metrics.MetricId;
+import org.example.metrics.Metrics;
+import org.example.security.keygen.KeyGenerator;
+import org.example.security.keygen.Keyring;
+import org.example.security.keygen.PassphraseProvider;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Computes blind indexes for sensitive values, so that encrypted values can
+ * be searched for equality without being decrypted.  A blind index is a
+ * keyed hash ({@code HMAC-SHA256}) of a value, which is the same for equal
+ * values but reveals nothing about the value to anyone who does not hold the
+ * index key.  The index key is derived from a passphrase and a random salt of
+ * its own, so that it is independent of the keys used for encrypting the
+ * values, and specific to a deployment.
+ *
+ * <p>Values are normalized before being hashed by removing whitespace and
+ * hyphens, so that, for example, {@code 123-45-6789} and {@code 123456789}
+ * have the same index.</p>
+ */
+public class BlindIndexer
+{
+  private static final String   ALGORITHM  = "HmacSHA256";
+  private static final MetricId METRIC     = new MetricId("crypto_blind_index");
+  private static final Pattern  SEPARATORS = Pattern.compile("[\\s-]");
+
+  private static final ThreadLocal<Pair<Key, Mac>> MAC = new ThreadLocal<>();
+
+  private final KeyGenerator       generator;
+  private final PassphraseProvider provider;
+  private final String             salt;
+
+  private volatile Pair<String, Key> indexKey;
+
+  /**
+   * Creates a blind indexer, with a new random salt for the index key.
+   *
+   * @param generator The generator to use for deriving the index key from
+   *                  the passphrase.
+   * @param provider  The provider for the passphrase.
+   */
+  public BlindIndexer(final KeyGenerator generator, final PassphraseProvider provider)
+  {
+    this(generator, provider, Keyring.generateSalt());
+  }
+
+  /**
+   * Creates a blind indexer.  The salt must be stored along with the
+   * passphrase, as indexes computed with a different salt do not match.
+   *
+   * @param generator The generator to use for deriving the index key from
+   *                  the passphrase.
+   * @param provider  The provider for the passphrase.
+   * @param salt      The salt for deriving the index key, in {@code Base64}
+   *                  representation.
+   * @throws NullPointerException if {@code salt} is {@code null}.
+   */
+  public BlindIndexer(final KeyGenerator generator, final PassphraseProvider provider, final String salt)
+  {
+    if (salt == null)
+    {
+      throw new NullPointerException("Argument [salt] must not be null.");
+    }
+
+    this.generator = generator;
+    this.provider = provider;
+    this.salt = salt;
+  }
+
+  /**
+   * Computes the blind index for a value.
+   *
+   * @param value The value to index.
+   * @return The blind index for the value, in {@code Base64} representation,
+   * {@code null} if {@code value} is {@code null}.
+   */
+  public String index(final String value)
+  {
+    if (value == null)
+    {
+      return null;
+    }
+
+    final long start = System.nanoTime();
+    final byte[] normalized = SEPARATORS.matcher(value).replaceAll("").getBytes(StandardCharsets.UTF_8);
+    final String index = Base64.getEncoder().encodeToString(getMac(getIndexKey()).doFinal(normalized));
+
+    Metrics.recordCryptoOperation(METRIC, start);
+
+    return index;
+  }
+
+  /**
+   * Gets the key used for computing blind indexes.  The key is derived from
+   * the passphrase and the salt once and remembered.
+   *
+   * @return The index key.
+   */
+  private Key getIndexKey()
+  {
+    final String passphrase = provider.getPassphrase();
+
+    Pair<String, Key> current = indexKey;
+
+    // The index key is derived again only if the passphrase has changed.
+    if (current == null || !current.getItem1().equals(passphrase))
+    {
+      final Key key = generator.generateKey(passphrase, salt).getItem1();
+
+      current = Pair.of(passphrase, new SecretKeySpec(key.getEncoded(), ALGORITHM));
+
+      indexKey = current;
+    }
+
+    return current.getItem2();
+  }
+
+  /**
+   * Gets the Java cryptography message authentication code generator for the
+   * current thread, initialized with a specified key.  The generator is
+   * re-initialized only when the key changes.
+   *
+   * @param key The key to use.
+   * @return A {@link Mac}.
+   */
+  private Mac getMac(final Key key)
+  {
+    Pair<Key, Mac> current = MAC.get();
+
+    if (current == null || current.getItem1() != key)
+    {
+      try
+      {
+        final Mac mac = current == null ? Mac.getInstance(ALGORITHM) : current.getItem2();
+
+        mac.init(key);
+
+        current = Pair.of(key, mac);
+
+        MAC.set(current);
+      }
+      catch (final Exception e)
+      {
+        throw new RuntimeException(e);
+      }
+    }
+
+    return current.getItem2();
+  }
+}
@@ -0,0 +1,166 @@
+package org.example.security;
+
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * The symmetric-key encryption schemes supported by {@link Encrypter}.  Each
+ * scheme has a version number, which is recorded in the header of data it
+ * encrypts so that the data can be decrypted using the same scheme later,
+ * even if the scheme used for encrypting new data has changed in the
+ * meantime.
+ */
+public enum CipherSuite
+{
+  /**
+   * {@code AES} in electronic codebook mode, with {@code PKCS#5} padding.
+   * Data encrypted with this scheme is not authenticated, and does not carry
+   * a header.  This scheme is provided only for reading data that was
+   * encrypted before headers were introduced.
+   */
+  AES_ECB(0, "AES", 0),
+
+  /**
+   * {@code AES} in Galois/counter mode, with a random 96-bit nonce for every
+   * message and a 128-bit authentication tag.
+   */
+  AES_GCM(1, "AES/GCM/NoPadding", 12);
+
+  private static final int BLOCK_LENGTH = 16;
+  private static final int TAG_LENGTH   = 128;
+
+  private final byte[] header;
+  private final int    nonceLength;
+  private final String transformation;
+  private final byte   version;
+
+  /**
+   * Sets the properties of the scheme.
+   *
+   * @param version        The version number for the scheme.
+   * @param transformation The Java cryptography extensions transformation
+   *                       name for the scheme.
+   * @param nonceLength    The length, in bytes, of the nonce used by the
+   *                       scheme, {@code 0} if the scheme does not use one.
+   */
+  CipherSuite(final int version, final String transformation, final int nonceLength)
+  {
+    this.header = new byte[] { (byte) version };
+    this.nonceLength = nonceLength;
+    this.transformation = transformation;
+    this.version = (byte) version;
+  }
+
+  /**
+   * Gets the scheme with a specified version number.
+   *
+   * @param version A version number.
+   * @return The {@link CipherSuite} with the version number.
+   * @throws IllegalArgumentException if there is no scheme with the version
+   *                                  number.
+   */
+  public static CipherSuite of(final byte version)
+  {
+    for (final CipherSuite suite : values())
+    {
+      if (suite.version == version)
+      {
+        return suite;
+      }
+    }
+
+    throw new IllegalArgumentException("Unsupported cipher suite version [" + version + "].");
+  }
+
+  /**
+   * Gets the length of the header written before data encrypted with this
+   * scheme, consisting of the version number and the nonce.
+   *
+   * @return The length of the header, in bytes.
+   */
+  public int getHeaderLength()
+  {
+    return hasHeader() ? 1 + nonceLength : 0;
+  }
+
+  /**
+   * Gets the length of the nonce used by this scheme.
+   *
+   * @return The length of the nonce, in bytes, {@code 0} if the scheme does
+   * not use one.
+   */
+  public int getNonceLength()
+  {
+    return nonceLength;
+  }
+
+  /**
+   * Gets the Java cryptography extensions transformation name for this
+   * scheme.
+   *
+   * @return A transformation name.
+   */
+  public String getTransformation()
+  {
+    return transformation;
+  }
+
+  /**
+   * Gets the version number for this scheme.
+   *
+   * @return The version number.
+   */
+  public byte getVersion()
+  {
+    return version;
+  }
+
+  /**
+   * Gets whether data encrypted with this scheme carries a header.
+   *
+   * @return {@code true} if encrypted data carries a header, {@code false}
+   * otherwise.
+   */
+  public boolean hasHeader()
+  {
+    return this != AES_ECB;
+  }
+
+  /**
+   * Gets the additional data authenticated along with data encrypted using
+   * this scheme, which is the version number.  The returned array must not
+   * be modified.
+   *
+   * @return The additional authenticated data.
+   */
+  byte[] getAssociatedData()
+  {
+    return header;
+  }
+
+  /**
+   * Gets the maximum length of the data produced by encrypting data of a
+   * specified length with this scheme, excluding the header.
+   *
+   * @param length The length of the data to encrypt.
+   * @return The maximum length of the encrypted data.
+   */
+  int getEncryptedLength(final int length)
+  {
+    return nonceLength == 0
+           ? (length / BLOCK_LENGTH + 1) * BLOCK_LENGTH
+           : length + TAG_LENGTH / 8;
+  }
+
+  /**
+   * Gets the cipher parameters for a message.
+   *
+   * @param nonce The nonce for the message.
+   * @return The cipher parameters, {@code null} if this scheme does not use
+   * a nonce.
+   */
+  AlgorithmParameterSpec getParameters(final byte[] nonce)
+  {
+    return nonceLength == 0 ? null : new GCMParameterSpec(TAG_LENGTH, nonce);
+  }
+}
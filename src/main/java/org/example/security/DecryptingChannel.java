@@ -0,0 +1,196 @@
+package org.example.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link ReadableByteChannel} that reads data encrypted by an
+ * {@link EncryptingChannel} from another channel and decrypts it using a
+ * {@link StreamCipher}.  Data is read and decrypted one chunk at a time, so
+ * memory use does not depend on the amount of data read.
+ */
+final class DecryptingChannel implements ReadableByteChannel
+{
+  private final ByteBuffer          encrypted;
+  private final Encrypter           encrypter;
+  private final ByteBuffer          plain;
+  private final ReadableByteChannel source;
+
+  private StreamCipher cipher;
+  private boolean      finished;
+  private boolean      open = true;
+
+  /**
+   * Creates a decrypting channel.
+   *
+   * @param encrypter The encrypter that provides the key.
+   * @param source    The channel to read encrypted data from.
+   */
+  DecryptingChannel(final Encrypter encrypter, final ReadableByteChannel source)
+  {
+    // One byte more than a chunk is read, to find out whether the chunk is
+    // the last one.
+    this.encrypted = ByteBuffer.allocateDirect(StreamCipher.CHUNK_LENGTH + StreamCipher.TAG_LENGTH + 1);
+    this.encrypter = encrypter;
+    this.plain = ByteBuffer.allocateDirect(StreamCipher.CHUNK_LENGTH);
+    this.source = source;
+
+    plain.flip();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if (open)
+    {
+      open = false;
+
+      source.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isOpen()
+  {
+    return open;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read(final ByteBuffer target) throws IOException
+  {
+    if (!open)
+    {
+      throw new ClosedChannelException();
+    }
+
+    if (!hasRemaining())
+    {
+      return -1;
+    }
+
+    final ByteBuffer chunk = plain.duplicate();
+
+    chunk.limit(chunk.position() + Math.min(chunk.remaining(), target.remaining()));
+
+    target.put(chunk);
+
+    final int length = chunk.position() - plain.position();
+
+    plain.position(chunk.position());
+
+    return length;
+  }
+
+  /**
+   * Decrypts all the remaining data and writes it to another channel,
+   * without copying it to an intermediate buffer.
+   *
+   * @param target The channel to write the decrypted data to.
+   * @return The number of bytes written.
+   * @throws IOException if the data could not be read or written.
+   */
+  long transferTo(final WritableByteChannel target) throws IOException
+  {
+    long length = 0;
+
+    while (hasRemaining())
+    {
+      while (plain.hasRemaining())
+      {
+        length += target.write(plain);
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Reads from the source channel until a buffer is full or the end of the
+   * channel has been reached.
+   *
+   * @param buffer The buffer to read into.
+   * @return {@code true} if the buffer is full, {@code false} if the end of
+   * the channel has been reached.
+   * @throws IOException if the data could not be read.
+   */
+  private boolean fill(final ByteBuffer buffer) throws IOException
+  {
+    while (buffer.hasRemaining())
+    {
+      if (source.read(buffer) == -1)
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Makes sure that decrypted data is available, reading and decrypting the
+   * next chunk if required.
+   *
+   * @return {@code true} if decrypted data is available, {@code false} if
+   * the end of the stream has been reached.
+   * @throws IOException if the data could not be read.
+   */
+  private boolean hasRemaining() throws IOException
+  {
+    while (!plain.hasRemaining() && !finished)
+    {
+      if (cipher == null)
+      {
+        final ByteBuffer header = ByteBuffer.allocate(StreamCipher.HEADER_LENGTH);
+
+        if (!fill(header))
+        {
+          throw new IOException("Stream header is incomplete.");
+        }
+
+        header.flip();
+
+        cipher = StreamCipher.forDecryption(encrypter, header);
+      }
+
+      final boolean last = !fill(encrypted);
+
+      encrypted.flip();
+
+      if (!last)
+      {
+        encrypted.limit(StreamCipher.CHUNK_LENGTH + StreamCipher.TAG_LENGTH);
+      }
+
+      plain.clear();
+
+      cipher.open(encrypted, plain, last);
+
+      plain.flip();
+
+      if (last)
+      {
+        finished = true;
+      }
+      else
+      {
+        // Keep the byte read past the end of the chunk for the next one.
+        encrypted.limit(encrypted.capacity());
+        encrypted.compact();
+      }
+    }
+
+    return plain.hasRemaining();
+  }
+}
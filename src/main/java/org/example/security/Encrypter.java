@@ -1,19 +1,68 @@
 package org.example.security;
 
+import org.example.metrics.Metrics;
+import org.example.metrics.SizeTaggedMetric;
+import org.example.security.keygen.SaltGenerator;
+
 import javax.crypto.Cipher;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.Key;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 
 /**
- * Encrypts (and decrypts) {@link String}s using the {@code AES} symmetric-key
- * encryption algorithm.
+ * Encrypts (and decrypts) data using the {@code AES} symmetric-key encryption
+ * algorithm.  Data is encrypted using a configurable {@link CipherSuite},
+ * {@link CipherSuite#AES_GCM} by default, and is preceded by a header that
+ * identifies the suite used, so that it can be decrypted correctly even after
+ * the suite used for encrypting new data has changed.  Text encrypted before
+ * headers were introduced is recognized by the absence of a header and is
+ * decrypted using {@link CipherSuite#AES_ECB}.
+ *
+ * <p>Instances are safe for use by multiple threads.  Each thread gets its
+ * own {@link Cipher} for each suite, which is reused across invocations and,
+ * for suites that do not use a nonce, re-initialized only when it is used
+ * with a different key or mode.  Threads do not keep keys alive once the
+ * encrypters using them are no longer used, and keep scratch buffers only
+ * for texts of up to {@value #MAX_BUFFER_LENGTH} bytes.</p>
+ *
+ * <p>Payloads too large to hold in memory can be encrypted as streams, using
+ * channels, {@link InputStream}s and {@link OutputStream}s, or files.
+ * Streams are split into chunks, each of which is encrypted separately using
+ * {@link CipherSuite#AES_GCM}, so memory use is constant regardless of the
+ * size of the payload.</p>
  */
 public class Encrypter
 {
-  private static final String ALGORITHM = "AES";
+  private static final String           BASE64_ALPHABET      =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+  private static final int[]            BASE64_VALUES        = getBase64Values();
+  private static final SizeTaggedMetric DECRYPT_METRIC       = new SizeTaggedMetric("crypto_decrypt", 64, 1024, 65536);
+  private static final CipherSuite      DEFAULT_SUITE        = CipherSuite.AES_GCM;
+  private static final SizeTaggedMetric ENCRYPT_METRIC       = new SizeTaggedMetric("crypto_encrypt", 64, 1024, 65536);
+  private static final char             HEADER_MARKER        = '$';
+  private static final long             MAPPED_REGION_LENGTH = 1024L * StreamCipher.CHUNK_LENGTH;
+  private static final int              MAX_BUFFER_LENGTH    = 8192;
+
+  private static final ThreadLocal<ThreadState> THREAD_STATE = new ThreadLocal<>();
 
-  private Cipher cipher;
-  private Key    key;
+  private final Key           key;
+  private final SaltGenerator nonceGenerator = new SaltGenerator();
+  private final CipherSuite   suite;
 
   /**
    * Sets the key to use for encryption and decryption.
@@ -21,8 +70,21 @@ public class Encrypter
    * @param key The key to use.
    */
   public Encrypter(final Key key)
+  {
+    this(key, DEFAULT_SUITE);
+  }
+
+  /**
+   * Sets the key to use for encryption and decryption, and the suite to use
+   * for encryption.
+   *
+   * @param key   The key to use.
+   * @param suite The {@link CipherSuite} to use for encrypting data.
+   */
+  public Encrypter(final Key key, final CipherSuite suite)
   {
     this.key = key;
+    this.suite = suite;
   }
 
   /**
@@ -37,16 +99,32 @@ public class Encrypter
 
     if (text != null)
     {
-      final Cipher cipher = getCipher();
+      final long start = System.nanoTime();
+      final ThreadState thread = getThreadState();
+      final boolean hasHeader = !text.isEmpty() && text.charAt(0) == HEADER_MARKER;
+      final int from = hasHeader ? 1 : 0;
+      final byte[] input = thread.input((text.length() - from) / 4 * 3 + 2);
+      final int length = decode(text, from, input);
+      final CipherSuite suite = hasHeader ? CipherSuite.of(input[0]) : CipherSuite.AES_ECB;
+      final int offset = suite.getHeaderLength();
+      final CipherState state = getCipher(thread, suite, Cipher.DECRYPT_MODE, readNonce(suite, input));
 
       try
       {
-        cipher.init(Cipher.DECRYPT_MODE, key);
+        final byte[] output = state.output(state.cipher.getOutputSize(length - offset));
+        final int decrypted = state.cipher.doFinal(input, offset, length - offset, output, 0);
 
-        result = new String(cipher.doFinal(decode(text)));
+        result = new String(output, 0, decrypted, StandardCharsets.UTF_8);
+
+        // Do not leave the decrypted bytes lying around in the buffer.
+        Arrays.fill(output, 0, decrypted, (byte) 0);
+
+        Metrics.recordCryptoOperation(DECRYPT_METRIC.forSize(decrypted), start);
       }
       catch (final Exception e)
       {
+        state.reset();
+
         throw new RuntimeException(e);
       }
     }
@@ -54,6 +132,112 @@ public class Encrypter
     return result;
   }
 
+  /**
+   * Decrypts data held in a buffer, which must start with a header written
+   * by {@link #encrypt(ByteBuffer, ByteBuffer)}.  When used with direct
+   * buffers, the data is decrypted without being copied to the Java heap.
+   *
+   * @param input  The buffer to read the encrypted data from, between its
+   *               position and limit.
+   * @param output The buffer to write the decrypted data to, starting at its
+   *               position.
+   * @return The number of bytes written to {@code output}.
+   */
+  public int decrypt(final ByteBuffer input, final ByteBuffer output)
+  {
+    final long start = System.nanoTime();
+    final CipherSuite suite = CipherSuite.of(input.get());
+    final byte[] nonce = new byte[suite.getNonceLength()];
+
+    input.get(nonce);
+
+    final CipherState state = getCipher(getThreadState(), suite, Cipher.DECRYPT_MODE, nonce);
+
+    try
+    {
+      final int decrypted = state.cipher.doFinal(input, output);
+
+      Metrics.recordCryptoOperation(DECRYPT_METRIC.forSize(decrypted), start);
+
+      return decrypted;
+    }
+    catch (final Exception e)
+    {
+      state.reset();
+
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Decrypts a stream written by
+   * {@link #encrypt(ReadableByteChannel, WritableByteChannel)}, one chunk at
+   * a time.  Neither channel is closed.
+   *
+   * @param input  The channel to read the encrypted stream from.
+   * @param output The channel to write the decrypted data to.
+   * @return The number of decrypted bytes written.
+   * @throws IOException if the data could not be read or written.
+   */
+  public long decrypt(final ReadableByteChannel input, final WritableByteChannel output) throws IOException
+  {
+    return new DecryptingChannel(this, input).transferTo(output);
+  }
+
+  /**
+   * Decrypts a file written by {@link #encrypt(Path, Path)}.
+   *
+   * @param source The file to decrypt.
+   * @param target The file to write the decrypted data to, which is replaced
+   *               if it exists.
+   * @return The number of decrypted bytes written.
+   * @throws IOException if the files could not be read or written.
+   */
+  public long decrypt(final Path source, final Path target) throws IOException
+  {
+    try (final FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+         final FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+    {
+      return decrypt(input, output);
+    }
+  }
+
+  /**
+   * Decrypts a number of {@link String}s.  This is cheaper than decrypting
+   * the {@link String}s one at a time as the cipher needs to be prepared only
+   * once for all of them.
+   *
+   * @param texts The {@link String}s to decrypt.
+   * @return The decrypted {@link String}s, in the same order as
+   * {@code texts}.
+   */
+  public List<String> decryptAll(final List<String> texts)
+  {
+    final List<String> result = new ArrayList<>(texts.size());
+
+    for (final String text : texts)
+    {
+      result.add(decrypt(text));
+    }
+
+    return result;
+  }
+
+  /**
+   * Wraps a stream written by {@link #encryptingStream(OutputStream)}, or by
+   * {@link #encrypt(ReadableByteChannel, WritableByteChannel)}, so that data
+   * is decrypted as it is read.  Closing the returned stream closes
+   * {@code input}.
+   *
+   * @param input The stream to read encrypted data from.
+   * @return An {@link InputStream} for reading the decrypted data.
+   */
+  public InputStream decryptingStream(final InputStream input)
+  {
+    return Channels.newInputStream(new DecryptingChannel(this, Channels.newChannel(input)));
+  }
+
   /**
    * Encrypts a {@link String}.
    *
@@ -66,16 +250,26 @@ public class Encrypter
 
     if (text != null)
     {
-      final Cipher cipher = getCipher();
+      final long start = System.nanoTime();
+      final byte[] nonce = newNonce();
+      final CipherState state = getCipher(getThreadState(), suite, Cipher.ENCRYPT_MODE, nonce);
+      final int offset = suite.getHeaderLength();
 
       try
       {
-        cipher.init(Cipher.ENCRYPT_MODE, this.key);
+        final byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        final byte[] output = state.output(offset + state.cipher.getOutputSize(input.length));
+
+        writeHeader(nonce, output);
 
-        result = encode(cipher.doFinal(text.getBytes()));
+        result = encode(output, offset + state.cipher.doFinal(input, 0, input.length, output, offset));
+
+        Metrics.recordCryptoOperation(ENCRYPT_METRIC.forSize(input.length), start);
       }
       catch (final Exception e)
       {
+        state.reset();
+
         throw new RuntimeException(e);
       }
     }
@@ -84,62 +278,463 @@ public class Encrypter
   }
 
   /**
-   * Decodes a {@link String} containing bytes in {@code Base64}
-   * representation into raw bytes.
+   * Encrypts data held in a buffer, writing a header followed by the
+   * encrypted data to another buffer.  When used with direct buffers, the
+   * data is encrypted without being copied to the Java heap, allowing the
+   * security provider to use hardware-accelerated implementations where
+   * available.
+   *
+   * @param input  The buffer to read the data to encrypt from, between its
+   *               position and limit.
+   * @param output The buffer to write the encrypted data to, starting at its
+   *               position.  The buffer must have at least
+   *               {@link #getEncryptedLength(int)} bytes remaining.
+   * @return The number of bytes written to {@code output}.
+   * @throws IllegalStateException if the suite used by this encrypter does
+   *                               not support headers.
+   */
+  public int encrypt(final ByteBuffer input, final ByteBuffer output)
+  {
+    if (!suite.hasHeader())
+    {
+      throw new IllegalStateException("Cipher suite [" + suite + "] does not support binary data.");
+    }
+
+    final long start = System.nanoTime();
+    final int length = input.remaining();
+    final byte[] nonce = newNonce();
+    final CipherState state = getCipher(getThreadState(), suite, Cipher.ENCRYPT_MODE, nonce);
+
+    output.put(suite.getVersion()).put(nonce);
+
+    try
+    {
+      final int encrypted = suite.getHeaderLength() + state.cipher.doFinal(input, output);
+
+      Metrics.recordCryptoOperation(ENCRYPT_METRIC.forSize(length), start);
+
+      return encrypted;
+    }
+    catch (final Exception e)
+    {
+      state.reset();
+
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Encrypts a stream of any length, one chunk at a time, writing a header
+   * followed by the encrypted chunks.  Neither channel is closed.
+   *
+   * @param input  The channel to read the data to encrypt from.
+   * @param output The channel to write the encrypted stream to.
+   * @return The number of bytes encrypted.
+   * @throws IOException if the data could not be read or written.
+   */
+  public long encrypt(final ReadableByteChannel input, final WritableByteChannel output) throws IOException
+  {
+    final EncryptingChannel channel = new EncryptingChannel(this, output);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(StreamCipher.CHUNK_LENGTH);
+
+    long length = 0;
+
+    while (input.read(buffer) != -1)
+    {
+      buffer.flip();
+
+      length += channel.write(buffer);
+
+      buffer.clear();
+    }
+
+    channel.finish();
+
+    return length;
+  }
+
+  /**
+   * Encrypts a file.  The file is mapped into memory a region at a time and
+   * encrypted straight from the mapped region, without being copied to an
+   * intermediate buffer.
+   *
+   * @param source The file to encrypt.
+   * @param target The file to write the encrypted stream to, which is
+   *               replaced if it exists.
+   * @return The number of bytes encrypted.
+   * @throws IOException if the files could not be read or written.
+   */
+  public long encrypt(final Path source, final Path target) throws IOException
+  {
+    try (final FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+         final FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE,
+                                                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+    {
+      final EncryptingChannel channel = new EncryptingChannel(this, output);
+      final long length = input.size();
+
+      for (long position = 0; position < length; position += MAPPED_REGION_LENGTH)
+      {
+        channel.write(input.map(FileChannel.MapMode.READ_ONLY, position,
+                                Math.min(MAPPED_REGION_LENGTH, length - position)));
+      }
+
+      channel.finish();
+
+      return length;
+    }
+  }
+
+  /**
+   * Wraps a stream so that data written to it is encrypted, in the same
+   * format as {@link #encrypt(ReadableByteChannel, WritableByteChannel)}.
+   * The returned stream must be closed to write the last chunk of data, and
+   * closing it closes {@code output}.
+   *
+   * @param output The stream to write encrypted data to.
+   * @return An {@link OutputStream} for writing the data to encrypt.
+   * @throws IOException if the stream header could not be written.
+   */
+  public OutputStream encryptingStream(final OutputStream output) throws IOException
+  {
+    return Channels.newOutputStream(new EncryptingChannel(this, Channels.newChannel(output)));
+  }
+
+  /**
+   * Gets the maximum number of bytes produced by encrypting a specified
+   * number of bytes with {@link #encrypt(ByteBuffer, ByteBuffer)}, including
+   * the header.
+   *
+   * @param length The number of bytes to encrypt.
+   * @return The maximum number of encrypted bytes.
+   */
+  public int getEncryptedLength(final int length)
+  {
+    return suite.getHeaderLength() + suite.getEncryptedLength(length);
+  }
+
+  /**
+   * Encrypts or decrypts a single chunk of a stream using
+   * {@link CipherSuite#AES_GCM}.
    *
-   * @param text The {@link String} to decode.
-   * @return An array of bytes.
+   * @param mode   The mode in which to use the cipher.
+   * @param nonce  The nonce for the chunk.
+   * @param input  The buffer to read the chunk from.
+   * @param output The buffer to write the result to.
+   * @return The number of bytes written to {@code output}.
    */
-  private byte[] decode(final String text)
+  int transform(final int mode, final byte[] nonce, final ByteBuffer input, final ByteBuffer output)
   {
-    return Base64.getDecoder().decode(text);
+    final long start = System.nanoTime();
+    final int length = input.remaining();
+    final CipherState state = getCipher(getThreadState(), CipherSuite.AES_GCM, mode, nonce);
+
+    try
+    {
+      final int transformed = state.cipher.doFinal(input, output);
+
+      Metrics.recordCryptoOperation(mode == Cipher.ENCRYPT_MODE
+                                    ? ENCRYPT_METRIC.forSize(length)
+                                    : DECRYPT_METRIC.forSize(transformed), start);
+
+      return transformed;
+    }
+    catch (final Exception e)
+    {
+      state.reset();
+
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Decodes the part of a {@link String} from a specified index on, which
+   * contains bytes in {@code Base64} representation, straight from the
+   * characters of the {@link String}, without copying them.
+   *
+   * @param text   The {@link String} to decode.
+   * @param from   The index of the first character to decode.
+   * @param output The buffer to write the decoded bytes to, which must be
+   *               large enough to hold them.
+   * @return The number of bytes decoded.
+   * @throws IllegalArgumentException if the text is not valid
+   *                                  {@code Base64}.
+   */
+  private static int decode(final String text, final int from, final byte[] output)
+  {
+    int to = text.length();
+
+    while (to > from && text.charAt(to - 1) == '=')
+    {
+      --to;
+    }
+
+    int bits = 0;
+    int count = 0;
+    int length = 0;
+
+    for (int i = from; i < to; ++i)
+    {
+      final char c = text.charAt(i);
+      final int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+
+      if (value < 0)
+      {
+        throw new IllegalArgumentException("Illegal Base64 character [" + c + "] at index [" + i + "].");
+      }
+
+      // Only the low-order bits that have not been written yet are used, so
+      // those shifted out of the top do not matter.
+      bits = bits << 6 | value;
+      count += 6;
+
+      if (count >= 8)
+      {
+        count -= 8;
+        output[length++] = (byte) (bits >> count);
+      }
+    }
+
+    if (count == 6)
+    {
+      throw new IllegalArgumentException("Base64 text has an invalid length.");
+    }
+
+    return length;
+  }
+
+  /**
+   * Gets the value of each character in the {@code Base64} alphabet, indexed
+   * by the character.
+   *
+   * @return The values, {@code -1} for characters outside the alphabet.
+   */
+  private static int[] getBase64Values()
+  {
+    final int[] values = new int[128];
+
+    Arrays.fill(values, -1);
+
+    for (int i = 0; i < BASE64_ALPHABET.length(); ++i)
+    {
+      values[BASE64_ALPHABET.charAt(i)] = i;
+    }
+
+    return values;
   }
 
   /**
    * Encodes bytes into a {@link String} using their {@code Base64}
-   * representation.
+   * representation, preceded by a marker if the bytes start with a header.
    *
-   * @param bytes The bytes to encode.
+   * @param bytes  The bytes to encode.
+   * @param length The number of bytes to encode.
    * @return A {@link String} containing the {@code Base64} representation
    * of the bytes.
    */
-  private String encode(final byte[] bytes)
+  private String encode(final byte[] bytes, final int length)
   {
-    return Base64.getEncoder().encodeToString(bytes);
+    final ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(bytes, 0, length));
+    final String text = new String(encoded.array(), 0, encoded.limit(), StandardCharsets.ISO_8859_1);
+
+    return suite.hasHeader() ? HEADER_MARKER + text : text;
   }
 
   /**
-   * Gets the Java cryptography cipher to use.
+   * Gets the Java cryptography cipher for the current thread and a
+   * specified suite, initialized with the key for this encrypter, a
+   * specified mode and a nonce.
    *
-   * @return A {@link Cipher}.
+   * @param thread The state for the current thread.
+   * @param suite  The {@link CipherSuite} for which the cipher is required.
+   * @param mode   The mode in which the cipher will be used.
+   * @param nonce  The nonce to use, {@code null} if the suite does not use
+   *               one.
+   * @return The {@link CipherState} for the suite.
    */
-  private Cipher getCipher()
+  private CipherState getCipher(final ThreadState thread, final CipherSuite suite, final int mode, final byte[] nonce)
   {
-    if (cipher == null)
+    CipherState state = thread.ciphers[suite.ordinal()];
+
+    try
     {
-      try
+      if (state == null)
       {
-        cipher = Cipher.getInstance(this.getCipherName());
+        state = new CipherState(Cipher.getInstance(suite.getTransformation()));
+
+        thread.ciphers[suite.ordinal()] = state;
       }
-      catch (final Exception e)
+
+      final AlgorithmParameterSpec parameters = suite.getParameters(nonce);
+
+      if (parameters != null)
       {
-        throw new RuntimeException(e);
+        // A cipher that uses a nonce must be initialized for every message.
+        state.cipher.init(mode, key, parameters);
+        state.cipher.updateAAD(suite.getAssociatedData());
+        state.reset();
+      }
+      else if (state.key.get() != key || state.mode != mode)
+      {
+        state.cipher.init(mode, key);
+        state.key = new WeakReference<>(key);
+        state.mode = mode;
       }
     }
+    catch (final Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+
+    return state;
+  }
+
+  /**
+   * Gets the cryptography state for the current thread.
+   *
+   * @return The {@link ThreadState} for the current thread.
+   */
+  private ThreadState getThreadState()
+  {
+    ThreadState thread = THREAD_STATE.get();
+
+    if (thread == null)
+    {
+      thread = new ThreadState();
+
+      THREAD_STATE.set(thread);
+    }
+
+    return thread;
+  }
+
+  /**
+   * Generates a nonce for a new message.
+   *
+   * @return A random nonce, {@code null} if the suite used by this encrypter
+   * does not use one.
+   */
+  private byte[] newNonce()
+  {
+    return suite.getNonceLength() == 0 ? null : nonceGenerator.nextSalt(suite.getNonceLength());
+  }
 
-    return cipher;
+  /**
+   * Reads the nonce from the header of encrypted data.
+   *
+   * @param suite The {@link CipherSuite} with which the data was encrypted.
+   * @param input The encrypted data, starting with its header.
+   * @return The nonce, {@code null} if the suite does not use one.
+   */
+  private byte[] readNonce(final CipherSuite suite, final byte[] input)
+  {
+    return suite.getNonceLength() == 0 ? null : Arrays.copyOfRange(input, 1, 1 + suite.getNonceLength());
   }
 
   /**
-   * Gets the Java cryptography extensions security provider transformation
-   * name to use for this obfuscator. This could be something like <b>AES</b>,
-   * <b>Blowfish/CBC/NoPadding</b>, <b>DES/None/PKCSPadding</b>, etc.
+   * Writes the header for encrypted data.
    *
-   * @return A Java cryptography extensions security provider transformation
-   * name.
+   * @param nonce  The nonce used for encrypting the data.
+   * @param output The buffer to write the header to.
    */
-  private String getCipherName()
+  private void writeHeader(final byte[] nonce, final byte[] output)
   {
-    return ALGORITHM;
+    if (suite.hasHeader())
+    {
+      output[0] = suite.getVersion();
+
+      System.arraycopy(nonce, 0, output, 1, nonce.length);
+    }
+  }
+
+  /**
+   * Holds a {@link Cipher} for a thread, along with the key and mode the
+   * cipher was last initialized with and a scratch buffer for its output.
+   * The key is held only weakly, for comparing it with the key for the next
+   * operation, so that it is not kept alive by the thread.
+   */
+  private static final class CipherState
+  {
+    private static final WeakReference<Key> NO_KEY = new WeakReference<>(null);
+
+    private final Cipher cipher;
+
+    private WeakReference<Key> key    = NO_KEY;
+    private int                mode;
+    private byte[]             output = new byte[0];
+
+    /**
+     * Creates the state for a cipher.
+     *
+     * @param cipher The cipher.
+     */
+    CipherState(final Cipher cipher)
+    {
+      this.cipher = cipher;
+    }
+
+    /**
+     * Gets the output buffer, growing it if required.  Buffers for more than
+     * {@link Encrypter#MAX_BUFFER_LENGTH} bytes are allocated for a single use only.
+     *
+     * @param length The minimum length for the buffer.
+     * @return The output buffer.
+     */
+    byte[] output(final int length)
+    {
+      if (length > MAX_BUFFER_LENGTH)
+      {
+        return new byte[length];
+      }
+
+      if (output.length < length)
+      {
+        output = new byte[length];
+      }
+
+      return output;
+    }
+
+    /**
+     * Forces the cipher to be re-initialized the next time it is used, for
+     * example, after an operation has failed and left it in an unknown state.
+     */
+    void reset()
+    {
+      key = NO_KEY;
+    }
+  }
+
+  /**
+   * Holds the cryptography state for a thread: a cipher for each suite and a
+   * scratch buffer for decoded input.
+   */
+  private static final class ThreadState
+  {
+    private final CipherState[] ciphers = new CipherState[CipherSuite.values().length];
+
+    private byte[] input = new byte[0];
+
+    /**
+     * Gets the input buffer, growing it if required.  Buffers for more than
+     * {@link Encrypter#MAX_BUFFER_LENGTH} bytes are allocated for a single use only.
+     *
+     * @param length The minimum length for the buffer.
+     * @return The input buffer.
+     */
+    byte[] input(final int length)
+    {
+      if (length > MAX_BUFFER_LENGTH)
+      {
+        return new byte[length];
+      }
+
+      if (input.length < length)
+      {
+        input = new byte[length];
+      }
+
+      return input;
+    }
   }
 }
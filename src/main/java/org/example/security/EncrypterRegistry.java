@@ -0,0 +1,155 @@
+package org.example.security;
+
+import org.example.lang.Pair;
+import org.example.metrics.MetricId;
+import org.example.metrics.Metrics;
+import org.example.security.keygen.KeyManager;
+
+import java.security.Key;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides {@link Encrypter}s for records whose keys are managed by a
+ * {@link KeyManager}, identified by the secrets stored with the records.
+ * Encrypters are shared, so that a record read again, or records that share
+ * a secret, do not require their key to be obtained again, and are held in a
+ * bounded cache from which the least-recently-used encrypter is evicted once
+ * the cache is full.
+ *
+ * <p>Encrypters are safe for use by multiple threads, and so is the
+ * registry.  The passphrase for each version on the keyring of the key
+ * manager is assumed not to change.</p>
+ */
+public class EncrypterRegistry
+{
+  private static final MetricId HITS   = new MetricId("encrypter_cache_hits");
+  private static final MetricId MISSES = new MetricId("encrypter_cache_misses");
+
+  private final Map<String, Encrypter> encrypters;
+  private final Object                 lock = new Object();
+  private final KeyManager             manager;
+
+  /**
+   * Creates a registry.
+   *
+   * @param manager     The {@link KeyManager} for obtaining the keys for
+   *                    records.
+   * @param maximumSize The maximum number of encrypters to hold.
+   * @throws NullPointerException     if {@code manager} is {@code null}.
+   * @throws IllegalArgumentException if {@code maximumSize} is not
+   *                                  positive.
+   */
+  public EncrypterRegistry(final KeyManager manager, final int maximumSize)
+  {
+    if (manager == null)
+    {
+      throw new NullPointerException("Argument [manager] must not be null.");
+    }
+
+    if (maximumSize <= 0)
+    {
+      throw new IllegalArgumentException("Argument [maximumSize] must be positive.");
+    }
+
+    this.encrypters = new LinkedHashMap<String, Encrypter>(16, 0.75f, true)
+    {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Encrypter> eldest)
+      {
+        return size() > maximumSize;
+      }
+    };
+    this.manager = manager;
+  }
+
+  /**
+   * Gets the encrypter for a record.
+   *
+   * @param secret The secret stored with the record.
+   * @return The {@link Encrypter} for the record.
+   * @throws NullPointerException     if {@code secret} is {@code null}.
+   * @throws IllegalArgumentException if the version of the passphrase for
+   *                                  the secret is no longer available.
+   */
+  public Encrypter getEncrypter(final String secret)
+  {
+    if (secret == null)
+    {
+      throw new NullPointerException("Argument [secret] must not be null.");
+    }
+
+    synchronized (lock)
+    {
+      final Encrypter encrypter = encrypters.get(secret);
+
+      if (encrypter != null)
+      {
+        Metrics.getRegistry().counter(HITS).increment();
+
+        return encrypter;
+      }
+    }
+
+    Metrics.getRegistry().counter(MISSES).increment();
+
+    // The key is obtained outside the lock, as doing so may be expensive.
+    final Encrypter encrypter = new Encrypter(manager.getKey(secret));
+
+    synchronized (lock)
+    {
+      encrypters.put(secret, encrypter);
+    }
+
+    return encrypter;
+  }
+
+  /**
+   * Gets whether the secret for a record is up-to-date, that is, whether the
+   * record does not need to be re-encrypted (see
+   * {@link KeyManager#isCurrent(String)}).
+   *
+   * @param secret The secret stored with the record.
+   * @return {@code true} if the secret is up-to-date, {@code false}
+   * otherwise.
+   */
+  public boolean isCurrent(final String secret)
+  {
+    return manager.isCurrent(secret);
+  }
+
+  /**
+   * Generates a key for a new record, and gets an encrypter for it.
+   *
+   * @return A {@link Pair} containing the {@link Encrypter} for the record
+   * and the secret to store with the record.
+   */
+  public Pair<Encrypter, String> newEncrypter()
+  {
+    final Pair<Key, String> pair = manager.newKey();
+    final Encrypter encrypter = new Encrypter(pair.getItem1());
+
+    synchronized (lock)
+    {
+      encrypters.put(pair.getItem2(), encrypter);
+    }
+
+    return Pair.of(encrypter, pair.getItem2());
+  }
+
+  /**
+   * Gets the number of encrypters currently held.
+   *
+   * @return The number of encrypters held.
+   */
+  public int size()
+  {
+    synchronized (lock)
+    {
+      return encrypters.size();
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package org.example.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link WritableByteChannel} that encrypts the data written to it using a
+ * {@link StreamCipher} and writes the encrypted data to another channel.
+ * Data is buffered until a whole chunk is available, so memory use does not
+ * depend on the amount of data written.  The last chunk is written only when
+ * the channel is finished or closed.
+ */
+final class EncryptingChannel implements WritableByteChannel
+{
+  private final StreamCipher        cipher;
+  private final ByteBuffer          encrypted;
+  private final ByteBuffer          plain;
+  private final WritableByteChannel target;
+
+  private boolean finished;
+  private boolean open = true;
+
+  /**
+   * Creates an encrypting channel, writing the stream header to the target
+   * channel.
+   *
+   * @param encrypter The encrypter that provides the key.
+   * @param target    The channel to write encrypted data to.
+   * @throws IOException if the header could not be written.
+   */
+  EncryptingChannel(final Encrypter encrypter, final WritableByteChannel target) throws IOException
+  {
+    this.encrypted = ByteBuffer.allocateDirect(StreamCipher.CHUNK_LENGTH + StreamCipher.TAG_LENGTH);
+    this.plain = ByteBuffer.allocateDirect(StreamCipher.CHUNK_LENGTH);
+    this.target = target;
+    this.cipher = StreamCipher.forEncryption(encrypter, encrypted);
+
+    flush();
+  }
+
+  /**
+   * Finishes the stream and closes the target channel.
+   *
+   * @throws IOException if the data could not be written.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if (open)
+    {
+      open = false;
+
+      try
+      {
+        finish();
+      }
+      finally
+      {
+        target.close();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isOpen()
+  {
+    return open;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int write(final ByteBuffer source) throws IOException
+  {
+    if (!open || finished)
+    {
+      throw new ClosedChannelException();
+    }
+
+    final int length = source.remaining();
+
+    while (source.hasRemaining())
+    {
+      if (!plain.hasRemaining())
+      {
+        // More data follows, so the buffered chunk is not the last one.
+        plain.flip();
+
+        seal(plain, false);
+
+        plain.clear();
+      }
+
+      if (plain.position() == 0 && source.remaining() > StreamCipher.CHUNK_LENGTH)
+      {
+        // Encrypt whole chunks straight from the source, without copying.
+        final ByteBuffer chunk = source.duplicate();
+
+        chunk.limit(chunk.position() + StreamCipher.CHUNK_LENGTH);
+
+        seal(chunk, false);
+
+        source.position(chunk.position());
+      }
+      else
+      {
+        final ByteBuffer chunk = source.duplicate();
+
+        chunk.limit(chunk.position() + Math.min(chunk.remaining(), plain.remaining()));
+
+        plain.put(chunk);
+
+        source.position(chunk.position());
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Encrypts and writes the last chunk of the stream, without closing the
+   * target channel.  No more data can be written after the stream has been
+   * finished.
+   *
+   * @throws IOException if the data could not be written.
+   */
+  void finish() throws IOException
+  {
+    if (!finished)
+    {
+      finished = true;
+
+      plain.flip();
+
+      seal(plain, true);
+    }
+  }
+
+  /**
+   * Writes the contents of the encrypted data buffer to the target channel.
+   *
+   * @throws IOException if the data could not be written.
+   */
+  private void flush() throws IOException
+  {
+    encrypted.flip();
+
+    while (encrypted.hasRemaining())
+    {
+      target.write(encrypted);
+    }
+
+    encrypted.clear();
+  }
+
+  /**
+   * Encrypts a chunk and writes it to the target channel.
+   *
+   * @param chunk The buffer holding the chunk.
+   * @param last  Whether the chunk is the last one in the stream.
+   * @throws IOException if the data could not be written.
+   */
+  private void seal(final ByteBuffer chunk, final boolean last) throws IOException
+  {
+    cipher.seal(chunk, encrypted, last);
+
+    flush();
+  }
+}
@@ -0,0 +1,69 @@
+package org.example.security;
+
+import java.util.Arrays;
+
+/**
+ * Holds a sensitive value, such as a decrypted social benefits number, in
+ * the clear, so that it needs to be decrypted only once.  The value is held
+ * as characters rather than as a {@link String}, so that it can be wiped
+ * from memory when it is no longer needed, instead of lingering until it is
+ * garbage-collected.
+ */
+public final class SensitiveValue implements Wipeable
+{
+  private char[]  characters;
+  private boolean wiped;
+
+  /**
+   * Creates a holder for a value.
+   *
+   * @param value The value, which may be {@code null}.
+   */
+  public SensitiveValue(final String value)
+  {
+    this.characters = value == null ? null : value.toCharArray();
+  }
+
+  /**
+   * Gets the value.
+   *
+   * @return The value.
+   * @throws IllegalStateException if the value has been wiped.
+   */
+  public String get()
+  {
+    if (wiped)
+    {
+      throw new IllegalStateException("Value has been wiped.");
+    }
+
+    return characters == null ? null : new String(characters);
+  }
+
+  /**
+   * Gets whether the value has been wiped.
+   *
+   * @return {@code true} if the value has been wiped, {@code false}
+   * otherwise.
+   */
+  public boolean isWiped()
+  {
+    return wiped;
+  }
+
+  /**
+   * Overwrites the value in memory.
+   */
+  @Override
+  public void wipe()
+  {
+    if (characters != null)
+    {
+      Arrays.fill(characters, '\0');
+
+      characters = null;
+    }
+
+    wiped = true;
+  }
+}
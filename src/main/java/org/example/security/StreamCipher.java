@@ -0,0 +1,148 @@
+package org.example.security;
+
+import org.example.security.keygen.SaltGenerator;
+
+import javax.crypto.Cipher;
+import java.nio.ByteBuffer;
+
+/**
+ * Encrypts (and decrypts) a stream of data as a sequence of fixed-size
+ * chunks, each of which is encrypted separately using
+ * {@link CipherSuite#AES_GCM}, so that streams of any size can be processed
+ * in a constant amount of memory.
+ *
+ * <p>An encrypted stream starts with a header consisting of the cipher suite
+ * version and a random nonce prefix.  The nonce for each chunk is made up of
+ * the prefix, the position of the chunk in the stream and a flag indicating
+ * whether the chunk is the last one.  Chunks that have been reordered,
+ * removed or appended, and streams that have been truncated, therefore fail
+ * authentication when they are decrypted.</p>
+ */
+final class StreamCipher
+{
+  /**
+   * The length of the data in each chunk, except possibly the last one.
+   */
+  static final int CHUNK_LENGTH = 64 * 1024;
+
+  /**
+   * The length of the authentication tag added to each chunk.
+   */
+  static final int TAG_LENGTH = 16;
+
+  private static final CipherSuite SUITE = CipherSuite.AES_GCM;
+
+  private static final int COUNTER_OFFSET = 7;
+
+  /**
+   * The length of the header at the start of the stream.
+   */
+  static final int HEADER_LENGTH = 1 + COUNTER_OFFSET;
+
+  private final Encrypter encrypter;
+  private final byte[]    nonce = new byte[SUITE.getNonceLength()];
+
+  private int chunk;
+
+  /**
+   * Creates a stream cipher.
+   *
+   * @param encrypter The encrypter that provides the key.
+   */
+  private StreamCipher(final Encrypter encrypter)
+  {
+    this.encrypter = encrypter;
+  }
+
+  /**
+   * Creates a cipher for decrypting a stream, reading the stream header.
+   *
+   * @param encrypter The encrypter that provides the key.
+   * @param header    A buffer holding the stream header.
+   * @return A {@link StreamCipher}.
+   * @throws IllegalArgumentException if the header is not valid.
+   */
+  static StreamCipher forDecryption(final Encrypter encrypter, final ByteBuffer header)
+  {
+    if (header.get() != SUITE.getVersion())
+    {
+      throw new IllegalArgumentException("Unsupported stream header.");
+    }
+
+    final StreamCipher cipher = new StreamCipher(encrypter);
+
+    header.get(cipher.nonce, 0, COUNTER_OFFSET);
+
+    return cipher;
+  }
+
+  /**
+   * Creates a cipher for encrypting a stream, writing the stream header.
+   *
+   * @param encrypter The encrypter that provides the key.
+   * @param header    A buffer to write the stream header to.
+   * @return A {@link StreamCipher}.
+   */
+  static StreamCipher forEncryption(final Encrypter encrypter, final ByteBuffer header)
+  {
+    final StreamCipher cipher = new StreamCipher(encrypter);
+    final byte[] prefix = new SaltGenerator().nextSalt(COUNTER_OFFSET);
+
+    System.arraycopy(prefix, 0, cipher.nonce, 0, COUNTER_OFFSET);
+
+    header.put(SUITE.getVersion()).put(prefix);
+
+    return cipher;
+  }
+
+  /**
+   * Decrypts the next chunk of the stream.
+   *
+   * @param input  The buffer to read the encrypted chunk from.
+   * @param output The buffer to write the decrypted chunk to.
+   * @param last   Whether the chunk is the last one in the stream.
+   * @return The number of bytes written to {@code output}.
+   */
+  int open(final ByteBuffer input, final ByteBuffer output, final boolean last)
+  {
+    return encrypter.transform(Cipher.DECRYPT_MODE, nextNonce(last), input, output);
+  }
+
+  /**
+   * Encrypts the next chunk of the stream.
+   *
+   * @param input  The buffer to read the chunk from.
+   * @param output The buffer to write the encrypted chunk to.
+   * @param last   Whether the chunk is the last one in the stream.
+   * @return The number of bytes written to {@code output}.
+   */
+  int seal(final ByteBuffer input, final ByteBuffer output, final boolean last)
+  {
+    return encrypter.transform(Cipher.ENCRYPT_MODE, nextNonce(last), input, output);
+  }
+
+  /**
+   * Gets the nonce for the next chunk of the stream.
+   *
+   * @param last Whether the chunk is the last one in the stream.
+   * @return The nonce for the chunk.
+   * @throws IllegalStateException if the stream has too many chunks.
+   */
+  private byte[] nextNonce(final boolean last)
+  {
+    if (chunk == -1)
+    {
+      throw new IllegalStateException("Stream is too long.");
+    }
+
+    nonce[COUNTER_OFFSET] = (byte) (chunk >>> 24);
+    nonce[COUNTER_OFFSET + 1] = (byte) (chunk >>> 16);
+    nonce[COUNTER_OFFSET + 2] = (byte) (chunk >>> 8);
+    nonce[COUNTER_OFFSET + 3] = (byte) chunk;
+    nonce[COUNTER_OFFSET + 4] = (byte) (last ? 1 : 0);
+
+    ++chunk;
+
+    return nonce;
+  }
+}
@@ -0,0 +1,15 @@
+package org.example.security;
+
+/**
+ * Contract for objects that hold sensitive information in the clear, such
+ * as decrypted values, and can wipe it from memory once it is no longer
+ * needed.
+ */
+public interface Wipeable
+{
+  /**
+   * Wipes sensitive information held in the clear.  Wiped information is
+   * obtained again, for example by decrypting it, if it is needed later.
+   */
+  void wipe();
+}
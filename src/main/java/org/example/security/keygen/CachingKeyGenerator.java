@@ -0,0 +1,100 @@
+package org.example.security.keygen;
+
+import org.example.lang.Pair;
+
+import java.security.Key;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates keys suitable for encrypting data using the {@code AES}
+ * symmetric-key encryption algorithm, remembering keys derived recently so
+ * that deriving the same key again does not repeat the expensive
+ * key-generation algorithm.
+ */
+public class CachingKeyGenerator extends KeyGenerator
+{
+  private static final long DEFAULT_EXPIRY       = 30;
+  private static final int  DEFAULT_MAXIMUM_SIZE = 10000;
+
+  private final KeyCache cache;
+
+  /**
+   * Creates a key generator that caches up to 10,000 keys for 30 minutes.
+   */
+  public CachingKeyGenerator()
+  {
+    this(new KeyCache(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRY, TimeUnit.MINUTES));
+  }
+
+  /**
+   * Creates a key generator that caches keys in a specified cache.
+   *
+   * @param cache The cache to use.
+   */
+  public CachingKeyGenerator(final KeyCache cache)
+  {
+    this(cache, KeyParameters.DEFAULT);
+  }
+
+  /**
+   * Creates a key generator that derives new keys with specified parameters
+   * and caches up to 10,000 keys for 30 minutes.
+   *
+   * @param parameters The {@link KeyParameters} for new keys.
+   */
+  public CachingKeyGenerator(final KeyParameters parameters)
+  {
+    this(new KeyCache(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRY, TimeUnit.MINUTES), parameters);
+  }
+
+  /**
+   * Creates a key generator that derives new keys with specified parameters
+   * and caches keys in a specified cache.
+   *
+   * @param cache      The cache to use.
+   * @param parameters The {@link KeyParameters} for new keys.
+   */
+  public CachingKeyGenerator(final KeyCache cache, final KeyParameters parameters)
+  {
+    super(parameters);
+
+    this.cache = cache;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Pair<Key, String> generateKey(final String passphrase, final String salt, final KeyParameters parameters)
+  {
+    // The same salt gives different keys with different parameters, so the
+    // parameters are part of the cache key.
+    final String id = parameters + "$" + salt;
+
+    if (passphrase != null && salt != null)
+    {
+      final Key key = cache.get(passphrase, id);
+
+      if (key != null)
+      {
+        return Pair.of(key, salt);
+      }
+    }
+
+    final Pair<Key, String> pair = super.generateKey(passphrase, salt, parameters);
+
+    cache.put(passphrase, id, pair.getItem1());
+
+    return pair;
+  }
+
+  /**
+   * Gets the cache used by this generator.
+   *
+   * @return A {@link KeyCache}.
+   */
+  public KeyCache getCache()
+  {
+    return cache;
+  }
+}
@@ -0,0 +1,309 @@
+package org.example.security.keygen;
+
+import org.example.metrics.MetricId;
+import org.example.metrics.Metrics;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, in-memory cache of keys derived from a passphrase and a salt.
+ * Entries are identified by a fingerprint of the passphrase (so that the
+ * passphrase itself is never retained) and the salt.  Once the cache is full,
+ * the least-recently-used entry is evicted to make room for a new one.
+ * Entries also expire a fixed amount of time after they were added.  Raw key
+ * material held by the cache is zeroed as soon as its entry is evicted, has
+ * expired or the cache is cleared.
+ */
+public class KeyCache
+{
+  private static final MetricId EVICTIONS             = new MetricId("key_cache_evictions");
+  private static final String   FINGERPRINT_ALGORITHM = "SHA-256";
+  private static final MetricId HITS                  = new MetricId("key_cache_hits");
+  private static final MetricId MISSES                = new MetricId("key_cache_misses");
+
+  private final Map<String, CachedKey> entries;
+  private final AtomicLong             evictions = new AtomicLong();
+  private final long                   expiry;
+  private final AtomicLong             hits      = new AtomicLong();
+  private final Object                 lock      = new Object();
+  private final AtomicLong             misses    = new AtomicLong();
+
+  /**
+   * Creates a cache with a specified size and expiry.
+   *
+   * @param maximumSize The maximum number of keys to hold in the cache.
+   * @param expiry      The amount of time for which a key is held in the
+   *                    cache after it was added.
+   * @param unit        The unit for {@code expiry}.
+   * @throws IllegalArgumentException if {@code maximumSize} or
+   *                                  {@code expiry} is not positive.
+   */
+  public KeyCache(final int maximumSize, final long expiry, final TimeUnit unit)
+  {
+    if (maximumSize <= 0)
+    {
+      throw new IllegalArgumentException("Argument [maximumSize] must be positive.");
+    }
+
+    if (expiry <= 0)
+    {
+      throw new IllegalArgumentException("Argument [expiry] must be positive.");
+    }
+
+    this.entries = new LinkedHashMap<String, CachedKey>(16, 0.75f, true)
+    {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, CachedKey> eldest)
+      {
+        if (size() > maximumSize)
+        {
+          eldest.getValue().destroy();
+          evictions.incrementAndGet();
+          Metrics.getRegistry().counter(EVICTIONS).increment();
+
+          return true;
+        }
+
+        return false;
+      }
+    };
+    this.expiry = unit.toNanos(expiry);
+  }
+
+  /**
+   * Removes all keys from the cache, zeroing their key material.
+   */
+  public void clear()
+  {
+    synchronized (lock)
+    {
+      for (final CachedKey entry : entries.values())
+      {
+        entry.destroy();
+      }
+
+      entries.clear();
+    }
+  }
+
+  /**
+   * Gets a key from the cache.
+   *
+   * @param passphrase The passphrase from which the key was derived.
+   * @param salt       The salt from which the key was derived.
+   * @return The cached key, if one exists and has not expired, {@code null}
+   * otherwise.  A new {@link Key} instance is returned on every invocation so
+   * that the key material returned to the caller is not affected by the
+   * entry being evicted later.
+   */
+  public Key get(final String passphrase, final String salt)
+  {
+    final String id = identify(passphrase, salt);
+
+    synchronized (lock)
+    {
+      final CachedKey entry = entries.get(id);
+
+      if (entry != null)
+      {
+        if (!entry.isExpired())
+        {
+          hits.incrementAndGet();
+          Metrics.getRegistry().counter(HITS).increment();
+
+          return entry.toKey();
+        }
+
+        entries.remove(id);
+        entry.destroy();
+        evictions.incrementAndGet();
+        Metrics.getRegistry().counter(EVICTIONS).increment();
+      }
+    }
+
+    misses.incrementAndGet();
+    Metrics.getRegistry().counter(MISSES).increment();
+
+    return null;
+  }
+
+  /**
+   * Gets the number of keys that have been evicted from the cache, either
+   * because the cache was full or because the keys had expired.
+   *
+   * @return The number of keys evicted from the cache.
+   */
+  public long getEvictionCount()
+  {
+    return evictions.get();
+  }
+
+  /**
+   * Gets the number of times a key was found in the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public long getHitCount()
+  {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of times a key was not found in the cache.
+   *
+   * @return The number of cache misses.
+   */
+  public long getMissCount()
+  {
+    return misses.get();
+  }
+
+  /**
+   * Removes all expired keys from the cache, zeroing their key material.
+   */
+  public void purge()
+  {
+    synchronized (lock)
+    {
+      final Iterator<CachedKey> iterator = entries.values().iterator();
+
+      while (iterator.hasNext())
+      {
+        final CachedKey entry = iterator.next();
+
+        if (entry.isExpired())
+        {
+          iterator.remove();
+          entry.destroy();
+          evictions.incrementAndGet();
+          Metrics.getRegistry().counter(EVICTIONS).increment();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a key to the cache, replacing any key previously cached for the
+   * same passphrase and salt.
+   *
+   * @param passphrase The passphrase from which the key was derived.
+   * @param salt       The salt from which the key was derived.
+   * @param key        The derived key.
+   */
+  public void put(final String passphrase, final String salt, final Key key)
+  {
+    final CachedKey entry = new CachedKey(key, System.nanoTime() + expiry);
+    final String id = identify(passphrase, salt);
+
+    synchronized (lock)
+    {
+      final CachedKey previous = entries.put(id, entry);
+
+      if (previous != null)
+      {
+        previous.destroy();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of keys currently held in the cache, including keys that
+   * have expired but have not been evicted yet.
+   *
+   * @return The number of keys in the cache.
+   */
+  public int size()
+  {
+    synchronized (lock)
+    {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Gets a unique identifier for a passphrase and salt combination.
+   *
+   * @param passphrase A passphrase.
+   * @param salt       A salt.
+   * @return A unique identifier for the combination.
+   */
+  private String identify(final String passphrase, final String salt)
+  {
+    try
+    {
+      final byte[] fingerprint = MessageDigest.getInstance(FINGERPRINT_ALGORITHM)
+                                              .digest(passphrase.getBytes(StandardCharsets.UTF_8));
+
+      return Base64.getEncoder().encodeToString(fingerprint) + ":" + salt;
+    }
+    catch (final NoSuchAlgorithmException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Represents a key held in the cache.
+   */
+  private static final class CachedKey
+  {
+    private final String algorithm;
+    private final byte[] encoded;
+    private final long   expiresAt;
+
+    /**
+     * Creates a cached key.
+     *
+     * @param key       The key.
+     * @param expiresAt The time, in nanoseconds, at which the entry expires.
+     */
+    CachedKey(final Key key, final long expiresAt)
+    {
+      this.algorithm = key.getAlgorithm();
+      this.encoded = key.getEncoded();
+      this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Zeroes the key material held by the entry.
+     */
+    void destroy()
+    {
+      Arrays.fill(encoded, (byte) 0);
+    }
+
+    /**
+     * Gets whether the entry has expired.
+     *
+     * @return {@code true} if the entry has expired, {@code false} otherwise.
+     */
+    boolean isExpired()
+    {
+      return System.nanoTime() - expiresAt >= 0;
+    }
+
+    /**
+     * Gets the key held by the entry.
+     *
+     * @return A {@link Key}.
+     */
+    Key toKey()
+    {
+      return new SecretKeySpec(encoded, algorithm);
+    }
+  }
+}
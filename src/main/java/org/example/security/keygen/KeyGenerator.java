@@ -1,33 +1,127 @@
 package org.example.security.keygen;
 
 import org.example.lang.Pair;
+import org.example.metrics.MetricId;
+import org.example.metrics.Metrics;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
-import java.util.Random;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Generates keys suitable for encrypting data using the {@code AES}
- * symmetric-key encryption algorithm.
+ * symmetric-key encryption algorithm.  Keys are derived with configurable
+ * {@link KeyParameters}, for which a number of rounds that takes a given
+ * amount of time on the machine the application runs on can be suggested.
+ *
+ * <p>Keys derived with {@code PBKDF2WithHmacSHA1} are derived by a built-in
+ * engine (see {@link Pbkdf2HmacSha1}), which prepares the {@code HMAC} state
+ * for a passphrase once and reuses it for as long as the same passphrase is
+ * used, and which derives the same keys as the platform does, unless the
+ * platform is faster on this JVM.  Other algorithms are left to the
+ * platform.</p>
  */
 public class KeyGenerator
 {
-  private static final String ALGORITHM                    = "AES";
-  private static final Object KEY_FACTORY_LOCK             = new Object();
-  private static final String KEY_GENERATION_ALGORITHM     = "PBKDF2WithHmacSHA1";
-  private static final int    KEY_GENERATION_ROUNDS        = 10000;
-  private static final int    KEY_LENGTH                   = 128;
-  private static final Object RANDOM_NUMBER_GENERATOR_LOCK = new Object();
-  private static final String SALT_GENERATION_ALGORITHM    = "SHA1PRNG";
+  private static final String ALGORITHM                = "AES";
+  private static final int    CALIBRATION_BUDGETS      = 20;
+  private static final int    CALIBRATION_RUNS         = 5;
+  private static final Object KEY_GENERATION_POOL_LOCK = new Object();
+  private static final String METRIC                   = "crypto_key_derivation";
+  private static final int    ROUNDS_GRANULARITY       = 1000;
+  private static final int    SALT_LENGTH              = 8;
 
-  private static SecretKeyFactory KEY_FACTORY;
-  private static Random           RANDOM_NUMBER_GENERATOR;
+  private static final ThreadLocal<Map<String, SecretKeyFactory>> KEY_FACTORIES = new ThreadLocal<>();
+
+  private static ForkJoinPool KEY_GENERATION_POOL;
+
+  private final KeyParameters parameters;
+  private final SaltGenerator saltGenerator = new SaltGenerator();
+
+  private volatile Pbkdf2HmacSha1 engine;
+
+  /**
+   * Creates a key generator that derives keys with
+   * {@link KeyParameters#DEFAULT}, that is, 10,000 rounds of
+   * {@code PBKDF2WithHmacSHA1} for every 128-bit key.
+   */
+  public KeyGenerator()
+  {
+    this(KeyParameters.DEFAULT);
+  }
+
+  /**
+   * Creates a key generator that derives new keys with specified
+   * parameters.
+   *
+   * @param parameters The {@link KeyParameters} for new keys.
+   * @throws NullPointerException if {@code parameters} is {@code null}.
+   */
+  public KeyGenerator(final KeyParameters parameters)
+  {
+    if (parameters == null)
+    {
+      throw new NullPointerException("Argument [parameters] must not be null.");
+    }
+
+    this.parameters = parameters;
+  }
+
+  /**
+   * Works out the number of rounds of the key-generation algorithm that
+   * makes deriving a key take a specified amount of time on this machine.
+   * The time taken with the parameters for this generator is measured
+   * repeatedly, for at least twenty times the required time so that the
+   * measurements are not distorted by the JIT compiler warming up, and the
+   * fastest measurement, which is the least disturbed by other activity, is
+   * scaled up or down to the required time.  The result
+   * is never fewer rounds than this generator uses, so calibrating cannot
+   * weaken keys.
+   *
+   * <p>The result depends on the machine and on whatever else it is doing,
+   * so differs from one run to the next.  It is meant as a suggestion for
+   * configuring the parameters for new keys, not as the parameters
+   * themselves.</p>
+   *
+   * @param budget The time that deriving a key should take.
+   * @param unit   The unit of {@code budget}.
+   * @return {@link KeyParameters} that are the same as the parameters for
+   * this generator, except for the number of rounds.
+   */
+  public KeyParameters calibrate(final long budget, final TimeUnit unit)
+  {
+    final String passphrase = getClass().getName();
+    final byte[] salt = saltGenerator.nextSalt(SALT_LENGTH);
+
+    final long calibration = System.nanoTime();
+
+    long fastest = Long.MAX_VALUE;
+    for (int i = 0; i < CALIBRATION_RUNS || System.nanoTime() - calibration < CALIBRATION_BUDGETS * unit.toNanos(budget); ++i)
+    {
+      final long start = System.nanoTime();
+
+      derive(passphrase, salt, parameters);
+
+      fastest = Math.min(fastest, System.nanoTime() - start);
+    }
+
+    final double rounds = (double) parameters.getRounds() * unit.toNanos(budget) / Math.max(fastest, 1);
+    final long rounded = (long) (rounds / ROUNDS_GRANULARITY) * ROUNDS_GRANULARITY;
+
+    return parameters.withRounds((int) Math.min(Integer.MAX_VALUE, Math.max(parameters.getRounds(), rounded)));
+  }
 
   /**
    * Generates a random key for use with a symmetric-key encryption algorithm.
@@ -43,7 +137,7 @@ public class KeyGenerator
    */
   public Pair<Key, String> generateKey(final String passphrase)
   {
-    return generateKey(passphrase, encode(generateSalt()));
+    return generateKey(passphrase, generateSalt());
   }
 
   /**
@@ -60,6 +154,25 @@ public class KeyGenerator
    *                              blank.
    */
   public Pair<Key, String> generateKey(final String passphrase, final String salt)
+  {
+    return generateKey(passphrase, salt, parameters);
+  }
+
+  /**
+   * Generates a key for use with a symmetric-key encryption algorithm from a
+   * passphrase and a salt, using specified parameters rather than the
+   * parameters for this generator, for example, to derive again a key that
+   * was derived with different parameters.
+   *
+   * @param passphrase A secret passphrase.
+   * @param salt       A salt to use for generating the key.
+   * @param parameters The {@link KeyParameters} to use.
+   * @return A {@link Pair} containing the generated key and the salt used
+   * for key generation.
+   * @throws NullPointerException if {@code passphrase}, {@code salt} or
+   *                              {@code parameters} is blank.
+   */
+  public Pair<Key, String> generateKey(final String passphrase, final String salt, final KeyParameters parameters)
   {
     if (passphrase == null)
     {
@@ -71,19 +184,83 @@ public class KeyGenerator
       throw new NullPointerException("Argument [salt] must not be null.");
     }
 
-    try
+    if (parameters == null)
     {
-      // Generate a random key using the passphrase and the salt.
-      final Key key = new SecretKeySpec(
-          getKeyFactory().generateSecret(new PBEKeySpec(passphrase.toCharArray(), decode(salt), KEY_GENERATION_ROUNDS, KEY_LENGTH)).getEncoded()
-          , ALGORITHM);
-
-      return Pair.of(key, salt);
+      throw new NullPointerException("Argument [parameters] must not be null.");
     }
-    catch (final InvalidKeySpecException e)
+
+    final long start = System.nanoTime();
+
+    // Generate a random key using the passphrase and the salt.
+    final Key key = derive(passphrase, decode(salt), parameters);
+
+    Metrics.recordCryptoOperation(new MetricId(METRIC, "rounds", Integer.toString(parameters.getRounds())), start);
+
+    return Pair.of(key, salt);
+  }
+
+  /**
+   * Generates a key for use with a symmetric-key encryption algorithm
+   * asynchronously, on a pool of threads dedicated to key generation.
+   *
+   * @param passphrase A secret passphrase.
+   * @param salt       A salt to use for generating the key.
+   * @return A {@link CompletableFuture} that completes with a {@link Pair}
+   * containing the generated key and the salt used for key generation.
+   * @see #generateKey(String, String)
+   */
+  public CompletableFuture<Pair<Key, String>> generateKeyAsync(final String passphrase, final String salt)
+  {
+    return CompletableFuture.supplyAsync(() -> generateKey(passphrase, salt), getKeyGenerationPool());
+  }
+
+  /**
+   * Generates keys for use with a symmetric-key encryption algorithm, one
+   * for each of a number of salts.  The keys are generated in parallel, on a
+   * pool of threads dedicated to key generation, and each distinct salt
+   * results in exactly one key being generated.
+   *
+   * @param passphrase A secret passphrase.
+   * @param salts      The salts to use for generating the keys.
+   * @return A {@link Map} of the salts to the keys generated for them.
+   * @throws NullPointerException if {@code passphrase}, {@code salts} or any
+   *                              of the salts is blank.
+   * @see #generateKey(String, String)
+   */
+  public Map<String, Key> generateKeys(final String passphrase, final Collection<String> salts)
+  {
+    if (salts == null)
     {
-      throw new RuntimeException(e);
+      throw new NullPointerException("Argument [salts] must not be null.");
     }
+
+    return getKeyGenerationPool().submit(() -> salts.parallelStream()
+                                                     .distinct()
+                                                     .collect(Collectors.toMap(Function.identity()
+                                                         , salt -> generateKey(passphrase, salt).getItem1())))
+                                 .join();
+  }
+
+  /**
+   * Generates a random salt that can be used for generating a key with
+   * {@link #generateKey(String, String)}, without generating the key
+   * itself.
+   *
+   * @return A randomly generated salt, in {@code Base64} representation.
+   */
+  public String generateSalt()
+  {
+    return encode(saltGenerator.nextSalt(SALT_LENGTH));
+  }
+
+  /**
+   * Gets the parameters with which this generator derives new keys.
+   *
+   * @return The {@link KeyParameters} for new keys.
+   */
+  public KeyParameters getParameters()
+  {
+    return parameters;
   }
 
   /**
@@ -97,6 +274,37 @@ public class KeyGenerator
     return Base64.getDecoder().decode(text);
   }
 
+  /**
+   * Derives a key from a passphrase and a salt.
+   *
+   * @param passphrase The passphrase.
+   * @param salt       The salt.
+   * @param parameters The {@link KeyParameters} to use.
+   * @return The derived key.
+   */
+  private Key derive(final String passphrase, final byte[] salt, final KeyParameters parameters)
+  {
+    if (Pbkdf2HmacSha1.PREFERRED && Pbkdf2HmacSha1.ALGORITHM.equals(parameters.getAlgorithm()))
+    {
+      return new SecretKeySpec(getEngine(passphrase).derive(salt, parameters.getRounds()
+          , parameters.getKeyLength() / 8)
+          , ALGORITHM);
+    }
+
+    try
+    {
+      return new SecretKeySpec(getKeyFactory(parameters.getAlgorithm())
+                                   .generateSecret(new PBEKeySpec(passphrase.toCharArray(), salt, parameters.getRounds()
+                                       , parameters.getKeyLength()))
+                                   .getEncoded()
+          , ALGORITHM);
+    }
+    catch (final InvalidKeySpecException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
   /**
    * Encodes bytes into a {@link String} using their {@code Base64}
    * representation.
@@ -111,73 +319,86 @@ public class KeyGenerator
   }
 
   /**
-   * Gets a factory for generating the random key.
+   * Gets the engine for deriving keys from a passphrase with
+   * {@code PBKDF2WithHmacSHA1}.  The engine for the most recently used
+   * passphrase is kept, as keys are almost always derived from the same
+   * passphrase.
    *
-   * @return A {@link SecretKeyFactory}.
+   * @param passphrase The passphrase.
+   * @return A {@link Pbkdf2HmacSha1} for {@code passphrase}.
    */
-  private SecretKeyFactory getKeyFactory()
+  private Pbkdf2HmacSha1 getEngine(final String passphrase)
   {
-    if (KEY_FACTORY == null)
+    Pbkdf2HmacSha1 current = engine;
+
+    if (current == null || !current.isFor(passphrase))
     {
-      synchronized (KEY_FACTORY_LOCK)
-      {
-        if (KEY_FACTORY == null)
-        {
-          try
-          {
-            KEY_FACTORY = SecretKeyFactory.getInstance(KEY_GENERATION_ALGORITHM);
-          }
-          catch (final NoSuchAlgorithmException e)
-          {
-            throw new RuntimeException(e);
-          }
-        }
-      }
+      current = new Pbkdf2HmacSha1(passphrase);
+
+      engine = current;
     }
 
-    return KEY_FACTORY;
+    return current;
   }
 
   /**
-   * Generates a random 64-bit salt.
+   * Gets a factory for generating the random key with a specified
+   * algorithm.  Each thread gets its own factories as
+   * {@link SecretKeyFactory} is not guaranteed to be safe for use by
+   * multiple threads.
    *
-   * @return A randomly generated 64-bit salt.
+   * @param algorithm The name of the key-generation algorithm.
+   * @return A {@link SecretKeyFactory}.
    */
-  private byte[] generateSalt()
+  private SecretKeyFactory getKeyFactory(final String algorithm)
   {
-    final byte[] salt = new byte[8];
+    Map<String, SecretKeyFactory> factories = KEY_FACTORIES.get();
+
+    if (factories == null)
+    {
+      factories = new HashMap<>();
+
+      KEY_FACTORIES.set(factories);
+    }
+
+    SecretKeyFactory factory = factories.get(algorithm);
 
-    getSaltGenerator().nextBytes(salt);
+    if (factory == null)
+    {
+      try
+      {
+        factory = SecretKeyFactory.getInstance(algorithm);
+
+        factories.put(algorithm, factory);
+      }
+      catch (final NoSuchAlgorithmException e)
+      {
+        throw new RuntimeException(e);
+      }
+    }
 
-    return salt;
+    return factory;
   }
 
   /**
-   * Gets a pseudo-random number generator suitable for generating random
-   * salt.
+   * Gets a pool of threads for generating keys in parallel, with one thread
+   * for each available processor.
    *
-   * @return A {@link Random} instance.
+   * @return A {@link ForkJoinPool}.
    */
-  private Random getSaltGenerator()
+  private ForkJoinPool getKeyGenerationPool()
   {
-    if (RANDOM_NUMBER_GENERATOR == null)
+    if (KEY_GENERATION_POOL == null)
     {
-      synchronized (RANDOM_NUMBER_GENERATOR_LOCK)
+      synchronized (KEY_GENERATION_POOL_LOCK)
       {
-        if (RANDOM_NUMBER_GENERATOR == null)
+        if (KEY_GENERATION_POOL == null)
         {
-          try
-          {
-            RANDOM_NUMBER_GENERATOR = SecureRandom.getInstance(SALT_GENERATION_ALGORITHM);
-          }
-          catch (final NoSuchAlgorithmException e)
-          {
-            throw new RuntimeException(e);
-          }
+          KEY_GENERATION_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
         }
       }
     }
 
-    return RANDOM_NUMBER_GENERATOR;
+    return KEY_GENERATION_POOL;
   }
 }
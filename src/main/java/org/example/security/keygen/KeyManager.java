@@ -0,0 +1,490 @@
+package org.example.security.keygen;
+
+import org.example.lang.Pair;
+import org.example.metrics.MetricId;
+import org.example.metrics.Metrics;
+import org.example.security.Encrypter;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Manages the encryption keys for individual records, such as persons.
+ * Each record stores a secret from which its key can be obtained, but which
+ * is useless without a passphrase held outside the record.  Two kinds of
+ * secret are supported:
+ *
+ * <ul>
+ * <li>{@link Mode#DERIVED}: the secret is a random salt that is combined
+ * with the passphrase to derive the key.  Obtaining a key requires running
+ * the (deliberately expensive) key-generation algorithm.</li>
+ * <li>{@link Mode#ENVELOPE}: the key is a random data key, and the secret is
+ * the data key wrapped (encrypted) with a master key derived from the
+ * passphrase and a random salt kept with it on the keyring.  The master key
+ * is derived only once, after which obtaining a key requires a single, cheap
+ * key-unwrap operation.</li>
+ * </ul>
+ *
+ * <p>Keys can be obtained from secrets of either kind, irrespective of the
+ * mode in which new secrets are generated, so that records created in one
+ * mode remain readable after switching to the other.</p>
+ *
+ * <p>Secrets also record the {@link KeyParameters} with which keys are
+ * derived from the passphrase, as a {@code $p$<parameters>$} prefix, so that
+ * the parameters for new records can be strengthened without making older
+ * records unreadable.  For {@link Mode#ENVELOPE} secrets, the parameters
+ * are those for deriving the master key.  Secrets without the prefix predate
+ * it and use {@link KeyParameters#DEFAULT}.</p>
+ *
+ * <p>Passphrases are held on a {@link Keyring}, and secrets record the
+ * version of the passphrase they were generated with, as a
+ * {@code $k$<version>$} prefix, so that the passphrase can be rotated while
+ * records protected with any version still on the keyring remain readable.
+ * Secrets without the prefix predate it and use
+ * {@link Keyring#INITIAL_VERSION}.</p>
+ *
+ * <p>Versions of the passphrase added to the keyring can be wrapped
+ * (encrypted) with the master key for the initial version (see
+ * {@link #wrapPassphrase(String)}), so that they can be stored alongside the
+ * records they protect and restored after a restart.</p>
+ */
+public class KeyManager
+{
+  private static final String   ALGORITHM         = "AES";
+  private static final String   ENVELOPE_PREFIX   = "$e$";
+  private static final int      KEY_LENGTH        = 16;
+  private static final String   PARAMETERS_PREFIX = "$p$";
+  private static final String   PREFIX_END        = "$";
+  private static final MetricId UNWRAP_METRIC     = new MetricId("crypto_key_unwrap");
+  private static final String   VERSION_PREFIX    = "$k$";
+  private static final String   WRAP_ALGORITHM    = "AESWrap";
+  private static final MetricId WRAP_METRIC       = new MetricId("crypto_key_wrap");
+
+  private static final ThreadLocal<Cipher> WRAP_CIPHER = new ThreadLocal<>();
+
+  private final KeyGenerator  generator;
+  private final Keyring       keyring;
+  private final Mode          mode;
+  private final SaltGenerator saltGenerator = new SaltGenerator();
+
+  private final ConcurrentMap<Pair<Integer, KeyParameters>, Pair<String, Key>> masterKeys = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a key manager for a passphrase that is never rotated, with a new
+   * random salt for the master key.  Secrets generated in
+   * {@link Mode#ENVELOPE} mode are therefore readable only by this key
+   * manager; to share them, create key managers with the same
+   * {@link Keyring}.
+   *
+   * @param generator The generator to use for deriving keys from the
+   *                  passphrase.
+   * @param provider  The provider for the passphrase.
+   * @param mode      The mode in which to generate secrets for new records.
+   */
+  public KeyManager(final KeyGenerator generator, final PassphraseProvider provider, final Mode mode)
+  {
+    this(generator, new Keyring(provider), mode);
+  }
+
+  /**
+   * Creates a key manager for a passphrase that can be rotated.
+   *
+   * @param generator The generator to use for deriving keys from the
+   *                  passphrase.
+   * @param keyring   The keyring holding the versions of the passphrase.
+   * @param mode      The mode in which to generate secrets for new records.
+   */
+  public KeyManager(final KeyGenerator generator, final Keyring keyring, final Mode mode)
+  {
+    this.generator = generator;
+    this.keyring = keyring;
+    this.mode = mode;
+  }
+
+  /**
+   * Gets the key for a record.
+   *
+   * @param secret The secret stored with the record.
+   * @return The key for the record.
+   * @throws NullPointerException     if {@code secret} is {@code null}.
+   * @throws IllegalArgumentException if the version of the passphrase for
+   *                                  the secret is no longer on the keyring.
+   */
+  public Key getKey(final String secret)
+  {
+    if (secret == null)
+    {
+      throw new NullPointerException("Argument [secret] must not be null.");
+    }
+
+    final Secret parsed = Secret.parse(secret);
+
+    return parsed.envelope
+           ? unwrap(parsed.body, parsed.version, parsed.parameters)
+           : generator.generateKey(keyring.getPassphrase(parsed.version), parsed.body, parsed.parameters).getItem1();
+  }
+
+  /**
+   * Gets the version of the passphrase that a secret was generated with.
+   *
+   * @param secret The secret stored with a record.
+   * @return The version of the passphrase.
+   * @throws NullPointerException if {@code secret} is {@code null}.
+   */
+  public int getVersion(final String secret)
+  {
+    if (secret == null)
+    {
+      throw new NullPointerException("Argument [secret] must not be null.");
+    }
+
+    return Secret.parse(secret).version;
+  }
+
+  /**
+   * Gets whether a secret is of the kind that is generated for new records,
+   * with the latest version of the passphrase and parameters at least as
+   * strong as those for new records, that is, whether the record does not
+   * need to be re-encrypted to bring it up-to-date.
+   *
+   * @param secret The secret stored with a record.
+   * @return {@code true} if the secret is up-to-date, {@code false}
+   * otherwise.
+   */
+  public boolean isCurrent(final String secret)
+  {
+    if (secret == null)
+    {
+      return false;
+    }
+
+    final Secret parsed = Secret.parse(secret);
+
+    return parsed.envelope == (mode == Mode.ENVELOPE)
+           && parsed.version == keyring.getVersion()
+           && parsed.parameters.isAtLeast(generator.getParameters());
+  }
+
+  /**
+   * Generates a key for a new record.
+   *
+   * @return A {@link Pair} containing the key for the record and the secret
+   * to store with the record.
+   */
+  public Pair<Key, String> newKey()
+  {
+    final int version = keyring.getVersion();
+    final KeyParameters parameters = generator.getParameters();
+
+    if (mode == Mode.DERIVED)
+    {
+      final Pair<Key, String> pair = generator.generateKey(keyring.getPassphrase(version)
+          , generator.generateSalt()
+          , parameters);
+
+      return Pair.of(pair.getItem1(), new Secret(false, pair.getItem2(), parameters, version).toString());
+    }
+
+    final Key key = new SecretKeySpec(saltGenerator.nextSalt(KEY_LENGTH), ALGORITHM);
+
+    return Pair.of(key, new Secret(true, wrap(key, version, parameters), parameters, version).toString());
+  }
+
+  /**
+   * Generates a secret for a new record, without returning the key that
+   * goes with it.  This is cheaper than {@link #newKey()} when the key is not
+   * required straight away.
+   *
+   * @return The secret to store with the record.
+   */
+  public String newSecret()
+  {
+    return mode == Mode.DERIVED
+           ? new Secret(false, generator.generateSalt(), generator.getParameters(), keyring.getVersion()).toString()
+           : newKey().getItem2();
+  }
+
+  /**
+   * Unwraps a passphrase wrapped with {@link #wrapPassphrase(String)}.
+   *
+   * @param wrapped The wrapped passphrase.
+   * @return The passphrase.
+   * @throws NullPointerException if {@code wrapped} is {@code null}.
+   * @throws RuntimeException     if the passphrase cannot be unwrapped, for
+   *                              example, because it was wrapped with a
+   *                              different initial version of the
+   *                              passphrase.
+   */
+  public String unwrapPassphrase(final String wrapped)
+  {
+    if (wrapped == null)
+    {
+      throw new NullPointerException("Argument [wrapped] must not be null.");
+    }
+
+    final Secret parsed = Secret.parse(wrapped);
+
+    return new Encrypter(getMasterKey(parsed.version, parsed.parameters)).decrypt(parsed.body);
+  }
+
+  /**
+   * Wraps (encrypts) a passphrase, such as a version of the passphrase added
+   * to the keyring, with the master key for the initial version of the
+   * passphrase, so that it can be stored.  The wrapped passphrase records the
+   * parameters for deriving the master key, as secrets do.
+   *
+   * @param passphrase The passphrase to wrap.
+   * @return The wrapped passphrase.
+   * @throws NullPointerException if {@code passphrase} is {@code null}.
+   */
+  public String wrapPassphrase(final String passphrase)
+  {
+    if (passphrase == null)
+    {
+      throw new NullPointerException("Argument [passphrase] must not be null.");
+    }
+
+    final KeyParameters parameters = generator.getParameters();
+    final Key masterKey = getMasterKey(Keyring.INITIAL_VERSION, parameters);
+
+    return new Secret(true, new Encrypter(masterKey).encrypt(passphrase), parameters, Keyring.INITIAL_VERSION)
+        .toString();
+  }
+
+  /**
+   * Gets the master key used for wrapping and unwrapping record keys.  The
+   * master key is derived from the passphrase, with the salt for the version
+   * of the passphrase (see {@link Keyring#getSalt(int)}), once for each
+   * version of the passphrase and set of parameters, and remembered.
+   *
+   * @param version    The version of the passphrase.
+   * @param parameters The {@link KeyParameters} for deriving the master key.
+   * @return The master key.
+   */
+  private Key getMasterKey(final int version, final KeyParameters parameters)
+  {
+    final Pair<Integer, KeyParameters> id = Pair.of(version, parameters);
+    final String passphrase = keyring.getPassphrase(version);
+
+    Pair<String, Key> current = masterKeys.get(id);
+
+    // The master key is derived again only if the passphrase has changed.
+    if (current == null || !current.getItem1().equals(passphrase))
+    {
+      final String salt = keyring.getSalt(version);
+
+      current = Pair.of(passphrase, generator.generateKey(passphrase, salt, parameters).getItem1());
+
+      masterKeys.put(id, current);
+    }
+
+    return current.getItem2();
+  }
+
+  /**
+   * Gets the Java cryptography cipher for wrapping and unwrapping keys, for
+   * the current thread.
+   *
+   * @return A {@link Cipher}.
+   */
+  private Cipher getWrapCipher()
+  {
+    Cipher cipher = WRAP_CIPHER.get();
+
+    if (cipher == null)
+    {
+      try
+      {
+        cipher = Cipher.getInstance(WRAP_ALGORITHM);
+
+        WRAP_CIPHER.set(cipher);
+      }
+      catch (final Exception e)
+      {
+        throw new RuntimeException(e);
+      }
+    }
+
+    return cipher;
+  }
+
+  /**
+   * Unwraps a record key.
+   *
+   * @param wrapped    The wrapped key, in {@code Base64} representation.
+   * @param version    The version of the passphrase for the master key.
+   * @param parameters The {@link KeyParameters} for deriving the master key.
+   * @return The unwrapped key.
+   */
+  private Key unwrap(final String wrapped, final int version, final KeyParameters parameters)
+  {
+    final long start = System.nanoTime();
+    final Key masterKey = getMasterKey(version, parameters);
+    final Cipher cipher = getWrapCipher();
+
+    try
+    {
+      cipher.init(Cipher.UNWRAP_MODE, masterKey);
+
+      final Key key = cipher.unwrap(Base64.getDecoder().decode(wrapped), ALGORITHM, Cipher.SECRET_KEY);
+
+      Metrics.recordCryptoOperation(UNWRAP_METRIC, start);
+
+      return key;
+    }
+    catch (final Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Wraps a record key.
+   *
+   * @param key        The key to wrap.
+   * @param version    The version of the passphrase for the master key.
+   * @param parameters The {@link KeyParameters} for deriving the master key.
+   * @return The wrapped key, in {@code Base64} representation.
+   */
+  private String wrap(final Key key, final int version, final KeyParameters parameters)
+  {
+    final long start = System.nanoTime();
+    final Key masterKey = getMasterKey(version, parameters);
+    final Cipher cipher = getWrapCipher();
+
+    try
+    {
+      cipher.init(Cipher.WRAP_MODE, masterKey);
+
+      final String wrapped = Base64.getEncoder().encodeToString(cipher.wrap(key));
+
+      Metrics.recordCryptoOperation(WRAP_METRIC, start);
+
+      return wrapped;
+    }
+    catch (final Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The kinds of secret that can be generated for new records.
+   */
+  public enum Mode
+  {
+    /**
+     * Secrets are salts from which keys are derived.
+     */
+    DERIVED,
+
+    /**
+     * Secrets are random keys wrapped with a master key.
+     */
+    ENVELOPE
+  }
+
+  /**
+   * The parts of a secret: the version of the passphrase, the parameters for
+   * deriving keys from the passphrase, and either a salt or a wrapped key.
+   */
+  private static final class Secret
+  {
+    private final String        body;
+    private final boolean       envelope;
+    private final KeyParameters parameters;
+    private final int           version;
+
+    /**
+     * Creates a secret from its parts.
+     *
+     * @param envelope   Whether the secret is a wrapped key rather than a
+     *                   salt.
+     * @param body       The salt or the wrapped key.
+     * @param parameters The {@link KeyParameters} for deriving keys.
+     * @param version    The version of the passphrase.
+     */
+    private Secret(final boolean envelope, final String body, final KeyParameters parameters, final int version)
+    {
+      this.body = body;
+      this.envelope = envelope;
+      this.parameters = parameters;
+      this.version = version;
+    }
+
+    /**
+     * Gets the representation of this secret that is stored with a record.
+     *
+     * @return The secret.
+     */
+    @Override
+    public String toString()
+    {
+      return VERSION_PREFIX + version + PREFIX_END
+             + PARAMETERS_PREFIX + parameters + PREFIX_END
+             + (envelope ? ENVELOPE_PREFIX : "")
+             + body;
+    }
+
+    /**
+     * Finds the end of a prefix in a secret.
+     *
+     * @param secret The secret.
+     * @param from   The position at which the value of the prefix starts.
+     * @return The position of the end of the prefix.
+     * @throws IllegalArgumentException if the prefix does not end.
+     */
+    private static int end(final String secret, final int from)
+    {
+      final int end = secret.indexOf(PREFIX_END, from);
+
+      if (end < 0)
+      {
+        throw new IllegalArgumentException("Secret prefix is not terminated.");
+      }
+
+      return end;
+    }
+
+    /**
+     * Splits a secret into its parts.
+     *
+     * @param secret The secret.
+     * @return The {@link Secret}.
+     * @throws IllegalArgumentException if the secret is not valid.
+     */
+    private static Secret parse(final String secret)
+    {
+      int start = 0;
+      int version = Keyring.INITIAL_VERSION;
+      KeyParameters parameters = KeyParameters.DEFAULT;
+
+      if (secret.startsWith(VERSION_PREFIX, start))
+      {
+        final int end = end(secret, start + VERSION_PREFIX.length());
+
+        version = Integer.parseInt(secret.substring(start + VERSION_PREFIX.length(), end));
+        start = end + PREFIX_END.length();
+      }
+
+      if (secret.startsWith(PARAMETERS_PREFIX, start))
+      {
+        final int end = end(secret, start + PARAMETERS_PREFIX.length());
+
+        parameters = KeyParameters.parse(secret.substring(start + PARAMETERS_PREFIX.length(), end));
+        start = end + PREFIX_END.length();
+      }
+
+      final boolean envelope = secret.startsWith(ENVELOPE_PREFIX, start);
+
+      return new Secret(envelope
+          , secret.substring(envelope ? start + ENVELOPE_PREFIX.length() : start)
+          , parameters
+          , version);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package org.example.security.keygen;
+
+/**
+ * The parameters for deriving a key from a passphrase and a salt: the
+ * key-generation algorithm, the number of rounds of the algorithm and the
+ * length of the key.  Parameters are recorded alongside the salts they were
+ * used with, so that keys can be derived again with the same parameters
+ * after the parameters used for new keys have changed.
+ */
+public final class KeyParameters
+{
+  /**
+   * The parameters used before parameters were recorded alongside salts,
+   * which are also the least that new keys are derived with.
+   */
+  public static final KeyParameters DEFAULT = new KeyParameters("PBKDF2WithHmacSHA1", 10000, 128);
+
+  private static final String SEPARATOR = ":";
+
+  private final String algorithm;
+  private final int    keyLength;
+  private final int    rounds;
+
+  /**
+   * Creates key-generation parameters.
+   *
+   * @param algorithm The name of the key-generation algorithm, such as
+   *                  {@code PBKDF2WithHmacSHA1}.
+   * @param rounds    The number of rounds of the algorithm.
+   * @param keyLength The length of the key, in bits, which must be a valid
+   *                  {@code AES} key length.
+   * @throws NullPointerException     if {@code algorithm} is {@code null}.
+   * @throws IllegalArgumentException if {@code rounds} is not positive or
+   *                                  {@code keyLength} is not a valid
+   *                                  {@code AES} key length.
+   */
+  public KeyParameters(final String algorithm, final int rounds, final int keyLength)
+  {
+    if (algorithm == null)
+    {
+      throw new NullPointerException("Argument [algorithm] must not be null.");
+    }
+
+    if (rounds < 1)
+    {
+      throw new IllegalArgumentException("Argument [rounds] must be positive.");
+    }
+
+    if (keyLength != 128 && keyLength != 192 && keyLength != 256)
+    {
+      throw new IllegalArgumentException("Argument [keyLength] must be 128, 192 or 256.");
+    }
+
+    this.algorithm = algorithm;
+    this.keyLength = keyLength;
+    this.rounds = rounds;
+  }
+
+  /**
+   * Parses parameters from their text representation, as produced by
+   * {@link #toString()}.
+   *
+   * @param text The text representation of the parameters.
+   * @return The {@link KeyParameters}.
+   * @throws IllegalArgumentException if {@code text} does not represent
+   *                                  valid parameters.
+   */
+  public static KeyParameters parse(final String text)
+  {
+    final String[] parts = text.split(SEPARATOR);
+
+    if (parts.length != 3)
+    {
+      throw new IllegalArgumentException("Key parameters [" + text + "] are not valid.");
+    }
+
+    return new KeyParameters(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(final Object other)
+  {
+    if (!(other instanceof KeyParameters))
+    {
+      return false;
+    }
+
+    final KeyParameters parameters = (KeyParameters) other;
+
+    return algorithm.equals(parameters.algorithm) && keyLength == parameters.keyLength && rounds == parameters.rounds;
+  }
+
+  /**
+   * Gets the name of the key-generation algorithm.
+   *
+   * @return The name of the algorithm.
+   */
+  public String getAlgorithm()
+  {
+    return algorithm;
+  }
+
+  /**
+   * Gets the length of the key.
+   *
+   * @return The length of the key, in bits.
+   */
+  public int getKeyLength()
+  {
+    return keyLength;
+  }
+
+  /**
+   * Gets the number of rounds of the key-generation algorithm.
+   *
+   * @return The number of rounds.
+   */
+  public int getRounds()
+  {
+    return rounds;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    return (algorithm.hashCode() * 31 + keyLength) * 31 + rounds;
+  }
+
+  /**
+   * Gets whether these parameters are at least as strong as a policy, that
+   * is, they use the same algorithm, and at least as many rounds and as long
+   * a key.
+   *
+   * @param policy The parameters required by the policy.
+   * @return {@code true} if these parameters satisfy the policy,
+   * {@code false} otherwise.
+   */
+  public boolean isAtLeast(final KeyParameters policy)
+  {
+    return algorithm.equals(policy.algorithm) && keyLength >= policy.keyLength && rounds >= policy.rounds;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return algorithm + SEPARATOR + rounds + SEPARATOR + keyLength;
+  }
+
+  /**
+   * Gets parameters that are the same as these, except for the number of
+   * rounds.
+   *
+   * @param rounds The number of rounds.
+   * @return The {@link KeyParameters}.
+   */
+  public KeyParameters withRounds(final int rounds)
+  {
+    return new KeyParameters(algorithm, rounds, keyLength);
+  }
+}
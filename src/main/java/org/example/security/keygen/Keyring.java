@@ -0,0 +1,212 @@
+package org.example.security.keygen;
+
+import org.example.lang.Pair;
+
+import java.util.Base64;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds numbered versions of a passphrase, so that the passphrase can be
+ * rotated without making data protected with an older version unreadable.
+ * New keys are always derived from the latest version, while keys for
+ * existing data are derived from the version recorded with the data.
+ *
+ * <p>Each version comes with a random salt of its own, generated along with
+ * the version, for deriving keys that are not specific to a record, such as
+ * a master key, from the passphrase.  A salt is as specific to a deployment
+ * as the passphrase it comes with, and must be stored along with it.</p>
+ */
+public class Keyring implements PassphraseProvider
+{
+  /**
+   * The version of the passphrase with which a keyring is created, which is
+   * also the version for data that predates versioning.
+   */
+  public static final int INITIAL_VERSION = 1;
+
+  private static final int SALT_LENGTH = 16;
+
+  private static final SaltGenerator SALT_GENERATOR = new SaltGenerator();
+
+  private final ConcurrentNavigableMap<Integer, Pair<PassphraseProvider, String>> versions
+      = new ConcurrentSkipListMap<>();
+
+  /**
+   * Creates a keyring, with a new random salt for the initial version of the
+   * passphrase.
+   *
+   * @param provider The provider for the initial version of the passphrase.
+   * @throws NullPointerException if {@code provider} is {@code null}.
+   */
+  public Keyring(final PassphraseProvider provider)
+  {
+    this(provider, generateSalt());
+  }
+
+  /**
+   * Creates a keyring.
+   *
+   * @param provider The provider for the initial version of the passphrase.
+   * @param salt     The salt for the initial version of the passphrase, in
+   *                 {@code Base64} representation.
+   * @throws NullPointerException if {@code provider} or {@code salt} is
+   *                              {@code null}.
+   */
+  public Keyring(final PassphraseProvider provider, final String salt)
+  {
+    versions.put(INITIAL_VERSION, version(provider, salt));
+  }
+
+  /**
+   * Generates a random salt for a version of a passphrase.
+   *
+   * @return The salt, in {@code Base64} representation.
+   */
+  public static String generateSalt()
+  {
+    return Base64.getEncoder().encodeToString(SALT_GENERATOR.nextSalt(SALT_LENGTH));
+  }
+
+  /**
+   * Adds a version of the passphrase that was added to a keyring earlier, for
+   * example, to restore the versions added by rotations after a restart.
+   * Adding a version that is already on this keyring with the same
+   * passphrase and salt has no effect.
+   *
+   * @param version  The number of the version.
+   * @param provider The provider for the version of the passphrase.
+   * @param salt     The salt for the version of the passphrase, in
+   *                 {@code Base64} representation.
+   * @throws NullPointerException     if {@code provider} or {@code salt} is
+   *                                  {@code null}.
+   * @throws IllegalArgumentException if the version is not after the
+   *                                  initial version, or is already on this
+   *                                  keyring with a different passphrase or
+   *                                  salt.
+   */
+  public synchronized void add(final int version, final PassphraseProvider provider, final String salt)
+  {
+    final Pair<PassphraseProvider, String> added = version(provider, salt);
+
+    if (version <= INITIAL_VERSION)
+    {
+      throw new IllegalArgumentException("Passphrase version [" + version + "] must be after the initial version.");
+    }
+
+    final Pair<PassphraseProvider, String> current = versions.putIfAbsent(version, added);
+
+    if (current != null && (!current.getItem1().getPassphrase().equals(provider.getPassphrase())
+                            || !current.getItem2().equals(salt)))
+    {
+      throw new IllegalArgumentException("Passphrase version [" + version + "] is already on the keyring.");
+    }
+  }
+
+  /**
+   * Gets the latest version of the passphrase.
+   *
+   * @return The passphrase.
+   */
+  @Override
+  public String getPassphrase()
+  {
+    return versions.lastEntry().getValue().getItem1().getPassphrase();
+  }
+
+  /**
+   * Gets a specified version of the passphrase.
+   *
+   * @param version The version.
+   * @return The passphrase.
+   * @throws IllegalArgumentException if the version is not on this keyring.
+   */
+  public String getPassphrase(final int version)
+  {
+    return get(version).getItem1().getPassphrase();
+  }
+
+  /**
+   * Gets the salt for a specified version of the passphrase.
+   *
+   * @param version The version.
+   * @return The salt, in {@code Base64} representation.
+   * @throws IllegalArgumentException if the version is not on this keyring.
+   */
+  public String getSalt(final int version)
+  {
+    return get(version).getItem2();
+  }
+
+  /**
+   * Gets the latest version number of the passphrase.
+   *
+   * @return The version number.
+   */
+  public int getVersion()
+  {
+    return versions.lastKey();
+  }
+
+  /**
+   * Adds a new version of the passphrase, with a new random salt, which
+   * becomes the latest version.  Earlier versions remain available for
+   * reading existing data.
+   *
+   * @param provider The provider for the new version of the passphrase.
+   * @return The number of the new version.
+   * @throws NullPointerException if {@code provider} is {@code null}.
+   */
+  public synchronized int rotate(final PassphraseProvider provider)
+  {
+    final Pair<PassphraseProvider, String> added = version(provider, generateSalt());
+    final int version = versions.lastKey() + 1;
+
+    versions.put(version, added);
+
+    return version;
+  }
+
+  /**
+   * Creates a version of the passphrase.
+   *
+   * @param provider The provider for the version of the passphrase.
+   * @param salt     The salt for the version of the passphrase.
+   * @return A {@link Pair} containing the provider and the salt.
+   * @throws NullPointerException if {@code provider} or {@code salt} is
+   *                              {@code null}.
+   */
+  private static Pair<PassphraseProvider, String> version(final PassphraseProvider provider, final String salt)
+  {
+    if (provider == null)
+    {
+      throw new NullPointerException("Argument [provider] must not be null.");
+    }
+
+    if (salt == null)
+    {
+      throw new NullPointerException("Argument [salt] must not be null.");
+    }
+
+    return Pair.of(provider, salt);
+  }
+
+  /**
+   * Gets a specified version of the passphrase, with its salt.
+   *
+   * @param version The version.
+   * @return A {@link Pair} containing the provider and the salt.
+   * @throws IllegalArgumentException if the version is not on this keyring.
+   */
+  private Pair<PassphraseProvider, String> get(final int version)
+  {
+    final Pair<PassphraseProvider, String> current = versions.get(version);
+
+    if (current == null)
+    {
+      throw new IllegalArgumentException("Passphrase version [" + version + "] is not available.");
+    }
+
+    return current;
+  }
+}
@@ -0,0 +1,395 @@
+package org.example.security.keygen;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Derives keys from a fixed passphrase with {@code PBKDF2WithHmacSHA1}, as
+ * specified by RFC 2898, producing exactly the same keys as the platform's
+ * {@link javax.crypto.SecretKeyFactory} for the same passphrase, salt,
+ * number of rounds and key length.
+ *
+ * <p>The state of {@code SHA-1} after the inner and outer padded passphrase
+ * blocks of {@code HMAC} is worked out once, when the engine is created,
+ * rather than for every key.  Each round then takes exactly two {@code SHA-1}
+ * compressions, done on words rather than bytes and without allocating any
+ * memory, so that deriving a key with many rounds creates no garbage.</p>
+ *
+ * <p>The platform does four compressions for each round, but where the JVM
+ * compresses with dedicated processor instructions, as recent JVMs do on
+ * processors that have them, the platform is still faster, and
+ * {@link #PREFERRED} is {@code false}.</p>
+ *
+ * <p>Instances are immutable, and safe for use by multiple threads.</p>
+ */
+final class Pbkdf2HmacSha1
+{
+  /**
+   * The name of the key-generation algorithm implemented by this engine.
+   */
+  static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+
+  /**
+   * Whether keys are derived faster by this engine than by the platform on
+   * this JVM.
+   */
+  static final boolean PREFERRED = !hasIntrinsics();
+
+  private static final int   BLOCK_LENGTH  = 64;
+  private static final int   DIGEST_LENGTH = 20;
+  private static final int[] INITIAL_STATE = { 0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0 };
+  private static final byte  INNER_PAD     = 0x36;
+  private static final byte  OUTER_PAD     = 0x5C;
+  private static final int   STATE_LENGTH  = 5;
+
+  private final int[]  inner = new int[STATE_LENGTH];
+  private final int[]  outer = new int[STATE_LENGTH];
+  private final String passphrase;
+
+  /**
+   * Creates an engine for deriving keys from a passphrase.  The passphrase
+   * is encoded as {@code UTF-8}, as the platform does.
+   *
+   * @param passphrase The passphrase.
+   * @throws NullPointerException if {@code passphrase} is {@code null}.
+   */
+  Pbkdf2HmacSha1(final String passphrase)
+  {
+    if (passphrase == null)
+    {
+      throw new NullPointerException("Argument [passphrase] must not be null.");
+    }
+
+    this.passphrase = passphrase;
+
+    final int[] words = new int[80];
+
+    // HMAC keys longer than a block are hashed first.
+    byte[] key = passphrase.getBytes(StandardCharsets.UTF_8);
+    if (key.length > BLOCK_LENGTH)
+    {
+      final int[] digest = INITIAL_STATE.clone();
+
+      hash(digest, key, 0, words);
+
+      key = toBytes(digest, DIGEST_LENGTH);
+    }
+
+    final byte[] innerBlock = pad(key, INNER_PAD);
+    final byte[] outerBlock = pad(key, OUTER_PAD);
+
+    System.arraycopy(INITIAL_STATE, 0, inner, 0, STATE_LENGTH);
+    System.arraycopy(INITIAL_STATE, 0, outer, 0, STATE_LENGTH);
+
+    compress(inner, innerBlock, 0, words);
+    compress(outer, outerBlock, 0, words);
+
+    // The padded blocks are as secret as the passphrase itself.
+    Arrays.fill(key, (byte) 0);
+    Arrays.fill(innerBlock, (byte) 0);
+    Arrays.fill(outerBlock, (byte) 0);
+    Arrays.fill(words, 0);
+  }
+
+  /**
+   * Derives a key from the passphrase for this engine and a salt.
+   *
+   * @param salt   The salt.
+   * @param rounds The number of rounds of the algorithm.
+   * @param length The length of the key, in bytes.
+   * @return The derived key.
+   * @throws NullPointerException     if {@code salt} is {@code null}.
+   * @throws IllegalArgumentException if {@code salt} is empty, or
+   *                                  {@code rounds} or {@code length} is
+   *                                  not positive.
+   */
+  byte[] derive(final byte[] salt, final int rounds, final int length)
+  {
+    if (salt == null)
+    {
+      throw new NullPointerException("Argument [salt] must not be null.");
+    }
+
+    if (salt.length == 0)
+    {
+      throw new IllegalArgumentException("Argument [salt] must not be empty.");
+    }
+
+    if (rounds < 1)
+    {
+      throw new IllegalArgumentException("Argument [rounds] must be positive.");
+    }
+
+    if (length < 1)
+    {
+      throw new IllegalArgumentException("Argument [length] must be positive.");
+    }
+
+    final byte[] key = new byte[length];
+    final byte[] message = Arrays.copyOf(salt, salt.length + 4);
+    final int[] result = new int[STATE_LENGTH];
+    final int[] round = new int[STATE_LENGTH];
+    final int[] words = new int[80];
+
+    for (int block = 1, offset = 0; offset < length; ++block, offset += DIGEST_LENGTH)
+    {
+      // The first round authenticates the salt followed by the block number.
+      message[salt.length] = (byte) (block >>> 24);
+      message[salt.length + 1] = (byte) (block >>> 16);
+      message[salt.length + 2] = (byte) (block >>> 8);
+      message[salt.length + 3] = (byte) block;
+
+      System.arraycopy(inner, 0, round, 0, STATE_LENGTH);
+      hash(round, message, BLOCK_LENGTH, words);
+      hashDigest(outer, round, words);
+
+      System.arraycopy(round, 0, result, 0, STATE_LENGTH);
+
+      // Each later round authenticates the result of the previous one.
+      for (int i = 1; i < rounds; ++i)
+      {
+        hashDigest(inner, round, words);
+        hashDigest(outer, round, words);
+
+        for (int j = 0; j < STATE_LENGTH; ++j)
+        {
+          result[j] ^= round[j];
+        }
+      }
+
+      final byte[] bytes = toBytes(result, DIGEST_LENGTH);
+
+      System.arraycopy(bytes, 0, key, offset, Math.min(DIGEST_LENGTH, length - offset));
+    }
+
+    return key;
+  }
+
+  /**
+   * Gets whether this engine derives keys from a specified passphrase.
+   *
+   * @param passphrase The passphrase.
+   * @return {@code true} if this engine derives keys from
+   * {@code passphrase}, {@code false} otherwise.
+   */
+  boolean isFor(final String passphrase)
+  {
+    return this.passphrase.equals(passphrase);
+  }
+
+  /**
+   * Applies the {@code SHA-1} compression function to a block of 64 bytes.
+   *
+   * @param state  The state of the hash, which is updated.
+   * @param bytes  The bytes containing the block.
+   * @param offset The offset of the block within {@code bytes}.
+   * @param words  A scratch array of 80 words.
+   */
+  private static void compress(final int[] state, final byte[] bytes, final int offset, final int[] words)
+  {
+    for (int i = 0; i < 16; ++i)
+    {
+      final int index = offset + 4 * i;
+
+      words[i] = (bytes[index] << 24)
+                 | ((bytes[index + 1] & 0xFF) << 16)
+                 | ((bytes[index + 2] & 0xFF) << 8)
+                 | (bytes[index + 3] & 0xFF);
+    }
+
+    compress(state, words);
+  }
+
+  /**
+   * Applies the {@code SHA-1} compression function to a block of 16 words.
+   *
+   * @param state The state of the hash, which is updated.
+   * @param words The block, in the first 16 of 80 words.  The remaining
+   *              words are overwritten.
+   */
+  private static void compress(final int[] state, final int[] words)
+  {
+    for (int i = 16; i < 80; ++i)
+    {
+      words[i] = Integer.rotateLeft(words[i - 3] ^ words[i - 8] ^ words[i - 14] ^ words[i - 16], 1);
+    }
+
+    int a = state[0];
+    int b = state[1];
+    int c = state[2];
+    int d = state[3];
+    int e = state[4];
+
+    for (int i = 0; i < 20; ++i)
+    {
+      final int temp = Integer.rotateLeft(a, 5) + ((b & c) | (~b & d)) + e + words[i] + 0x5A827999;
+
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+
+    for (int i = 20; i < 40; ++i)
+    {
+      final int temp = Integer.rotateLeft(a, 5) + (b ^ c ^ d) + e + words[i] + 0x6ED9EBA1;
+
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+
+    for (int i = 40; i < 60; ++i)
+    {
+      final int temp = Integer.rotateLeft(a, 5) + ((b & c) | (b & d) | (c & d)) + e + words[i] + 0x8F1BBCDC;
+
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+
+    for (int i = 60; i < 80; ++i)
+    {
+      final int temp = Integer.rotateLeft(a, 5) + (b ^ c ^ d) + e + words[i] + 0xCA62C1D6;
+
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+
+    state[0] += a;
+    state[1] += b;
+    state[2] += c;
+    state[3] += d;
+    state[4] += e;
+  }
+
+  /**
+   * Gets whether the JVM computes {@code SHA-1} with dedicated processor
+   * instructions.
+   *
+   * @return {@code true} if the JVM is known to compute {@code SHA-1} with
+   * dedicated processor instructions, {@code false} otherwise.
+   */
+  private static boolean hasIntrinsics()
+  {
+    try
+    {
+      final HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+
+      return diagnostics != null && Boolean.parseBoolean(diagnostics.getVMOption("UseSHA1Intrinsics").getValue());
+    }
+    catch (final IllegalArgumentException | LinkageError e)
+    {
+      // Not a HotSpot JVM, or one that has no such instructions.
+      return false;
+    }
+  }
+
+  /**
+   * Completes a {@code SHA-1} hash of a message.
+   *
+   * @param state     The state of the hash after the bytes hashed before
+   *                  the message, which is updated to the digest.
+   * @param message   The message.
+   * @param processed The number of bytes hashed before the message, which
+   *                  must be a multiple of 64.
+   * @param words     A scratch array of 80 words.
+   */
+  private static void hash(final int[] state, final byte[] message, final int processed, final int[] words)
+  {
+    final int blocks = message.length / BLOCK_LENGTH;
+
+    for (int i = 0; i < blocks; ++i)
+    {
+      compress(state, message, i * BLOCK_LENGTH, words);
+    }
+
+    // The remaining bytes, a single one bit, and the length of the message
+    // in bits, padded to one or two blocks.
+    final int remaining = message.length - blocks * BLOCK_LENGTH;
+    final byte[] tail = new byte[remaining < BLOCK_LENGTH - 8 ? BLOCK_LENGTH : 2 * BLOCK_LENGTH];
+    final long bits = 8L * (processed + message.length);
+
+    System.arraycopy(message, blocks * BLOCK_LENGTH, tail, 0, remaining);
+    tail[remaining] = (byte) 0x80;
+    for (int i = 0; i < 8; ++i)
+    {
+      tail[tail.length - 1 - i] = (byte) (bits >>> (8 * i));
+    }
+
+    for (int offset = 0; offset < tail.length; offset += BLOCK_LENGTH)
+    {
+      compress(state, tail, offset, words);
+    }
+  }
+
+  /**
+   * Completes a {@code SHA-1} hash of a digest following a single block,
+   * without converting the digest to bytes.
+   *
+   * @param start  The state of the hash after the first block.
+   * @param digest The digest to hash, which is replaced with the result.
+   * @param words  A scratch array of 80 words.
+   */
+  private static void hashDigest(final int[] start, final int[] digest, final int[] words)
+  {
+    System.arraycopy(digest, 0, words, 0, STATE_LENGTH);
+    words[STATE_LENGTH] = 0x80000000;
+    Arrays.fill(words, STATE_LENGTH + 1, 15, 0);
+    words[15] = 8 * (BLOCK_LENGTH + DIGEST_LENGTH);
+
+    System.arraycopy(start, 0, digest, 0, STATE_LENGTH);
+
+    compress(digest, words);
+  }
+
+  /**
+   * Pads a key, of at most 64 bytes, to a block for {@code HMAC}.
+   *
+   * @param key The key.
+   * @param pad The padding byte.
+   * @return A new block, containing the key followed by zeros, with each
+   * byte combined with {@code pad}.
+   */
+  private static byte[] pad(final byte[] key, final byte pad)
+  {
+    final byte[] padded = new byte[BLOCK_LENGTH];
+
+    for (int i = 0; i < BLOCK_LENGTH; ++i)
+    {
+      padded[i] = (byte) ((i < key.length ? key[i] : 0) ^ pad);
+    }
+
+    return padded;
+  }
+
+  /**
+   * Converts words to bytes, most significant byte first.
+   *
+   * @param words  The words to convert.
+   * @param length The number of bytes to produce.
+   * @return The bytes.
+   */
+  private static byte[] toBytes(final int[] words, final int length)
+  {
+    final byte[] bytes = new byte[length];
+
+    for (int i = 0; i < length; ++i)
+    {
+      bytes[i] = (byte) (words[i / 4] >>> (24 - 8 * (i % 4)));
+    }
+
+    return bytes;
+  }
+}
@@ -1,8 +1,6 @@
 package org.example.security.keygen;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
-import java.util.Random;
 
 /**
  * Provides a random passphrase every time it is invoked.  The passphrase is
@@ -10,13 +8,15 @@ import java.util.Random;
  */
 public class RandomPassphraseProvider implements PassphraseProvider
 {
-  private static final Random RANDOM = new SecureRandom();
+  private static final int PASSPHRASE_LENGTH = 64;
+
+  private final SaltGenerator generator = new SaltGenerator();
 
   /**
    * {@inheritDoc}
    */
   public String getPassphrase()
   {
-    return new BigInteger(512, RANDOM).toString(16);
+    return new BigInteger(1, generator.nextSalt(PASSPHRASE_LENGTH)).toString(16);
   }
 }
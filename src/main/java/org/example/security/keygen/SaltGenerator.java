@@ -0,0 +1,168 @@
+package org.example.security.keygen;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Generates cryptographically strong random bytes suitable for use as salts
+ * and nonces.  Each thread gets its own pseudo-random number generator so
+ * that threads generating random bytes at the same time do not contend for a
+ * single generator.  Every generator is seeded from the operating system
+ * entropy source when it is created, and reseeded from it after it has
+ * produced a fixed number of bytes.
+ */
+public class SaltGenerator
+{
+  private static final String GENERATION_ALGORITHM = "SHA1PRNG";
+  private static final int    RESEED_INTERVAL      = 1 << 16;
+  private static final int    SEED_LENGTH          = 32;
+  private static final String SEED_ALGORITHM       = "NativePRNGNonBlocking";
+  private static final Object SEED_SOURCE_LOCK     = new Object();
+
+  private static final ThreadLocal<Generator> GENERATOR = new ThreadLocal<>();
+
+  private static SecureRandom SEED_SOURCE;
+
+  /**
+   * Fills an array with random bytes.
+   *
+   * @param bytes The array to fill.
+   */
+  public void nextBytes(final byte[] bytes)
+  {
+    getGenerator().nextBytes(bytes);
+  }
+
+  /**
+   * Generates a random salt.
+   *
+   * @param length The length of the salt, in bytes.
+   * @return A randomly generated salt.
+   */
+  public byte[] nextSalt(final int length)
+  {
+    final byte[] salt = new byte[length];
+
+    nextBytes(salt);
+
+    return salt;
+  }
+
+  /**
+   * Generates a number of random salts in one go.
+   *
+   * @param count  The number of salts to generate.
+   * @param length The length of each salt, in bytes.
+   * @return An array of randomly generated salts.
+   */
+  public byte[][] nextSalts(final int count, final int length)
+  {
+    final Generator generator = getGenerator();
+    final byte[][] salts = new byte[count][length];
+
+    for (final byte[] salt : salts)
+    {
+      generator.nextBytes(salt);
+    }
+
+    return salts;
+  }
+
+  /**
+   * Gets the pseudo-random number generator for the current thread.
+   *
+   * @return A {@link Generator}.
+   */
+  private Generator getGenerator()
+  {
+    Generator generator = GENERATOR.get();
+
+    if (generator == null)
+    {
+      try
+      {
+        generator = new Generator(SecureRandom.getInstance(GENERATION_ALGORITHM));
+
+        GENERATOR.set(generator);
+      }
+      catch (final NoSuchAlgorithmException e)
+      {
+        throw new RuntimeException(e);
+      }
+    }
+
+    return generator;
+  }
+
+  /**
+   * Gets fresh seed material from the operating system entropy source.
+   *
+   * @return Seed material.
+   */
+  private static byte[] getSeed()
+  {
+    if (SEED_SOURCE == null)
+    {
+      synchronized (SEED_SOURCE_LOCK)
+      {
+        if (SEED_SOURCE == null)
+        {
+          try
+          {
+            SEED_SOURCE = SecureRandom.getInstance(SEED_ALGORITHM);
+          }
+          catch (final NoSuchAlgorithmException e)
+          {
+            // The non-blocking source is not available on all platforms,
+            // in which case the platform default is used.
+            SEED_SOURCE = new SecureRandom();
+          }
+        }
+      }
+    }
+
+    return SEED_SOURCE.generateSeed(SEED_LENGTH);
+  }
+
+  /**
+   * A pseudo-random number generator for a thread, along with the number of
+   * bytes it has produced since it was last seeded.
+   */
+  private static final class Generator
+  {
+    private final SecureRandom random;
+
+    private int generated;
+
+    /**
+     * Creates a generator, seeding it from the operating system entropy
+     * source.
+     *
+     * @param random The pseudo-random number generator.
+     */
+    Generator(final SecureRandom random)
+    {
+      this.random = random;
+
+      random.setSeed(getSeed());
+    }
+
+    /**
+     * Fills an array with random bytes, reseeding the generator first if it
+     * has produced enough bytes since it was last seeded.
+     *
+     * @param bytes The array to fill.
+     */
+    void nextBytes(final byte[] bytes)
+    {
+      if (generated >= RESEED_INTERVAL)
+      {
+        random.setSeed(getSeed());
+        generated = 0;
+      }
+
+      random.nextBytes(bytes);
+      generated += bytes.length;
+    }
+  }
+}
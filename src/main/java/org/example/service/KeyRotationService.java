@@ -0,0 +1,230 @@
+package org.example.service;
+
+import org.example.data.KeyRotationRepository;
+import org.example.data.KeyVersionRepository;
+import org.example.data.Keyset;
+import org.example.domain.KeyRotation;
+import org.example.domain.KeyVersion;
+import org.example.domain.Person;
+import org.example.security.keygen.Keyring;
+import org.example.security.keygen.RandomPassphraseProvider;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rotates the passphrase from which the keys for persons are derived, and
+ * re-encrypts all persons with keys derived from the new passphrase.
+ *
+ * <p>Persons are re-encrypted in the background, a chunk at a time, in order
+ * of first name, last name and unique identifier.  Each chunk is
+ * re-encrypted in parallel on a bounded pool of worker threads and saved in
+ * a transaction of its own, together with a {@link KeyRotation} checkpoint,
+ * so that a rotation that is interrupted resumes after the last chunk
+ * saved.  Persons remain readable throughout, whichever version of the
+ * passphrase they are protected with.</p>
+ *
+ * <p>The new version of the passphrase is saved, wrapped with the initial
+ * version, along with its salt (see {@link KeyVersion}), in the same transaction as the
+ * {@link KeyRotation} that adds it, and only then used, so that it is never
+ * lost while persons are protected with it.  The versions saved are
+ * restored to the keyring when the application starts.</p>
+ *
+ * <p>A rotation uses a single database connection at a time, and pauses
+ * between chunks so that it is busy for only a proportion of the time (the
+ * duty cycle, 50% by default), leaving the connection pool and the database
+ * to live traffic the rest of the time.</p>
+ */
+@Service
+@Transactional
+public class KeyRotationService implements InitializingBean
+{
+  private static final String CHUNK_SIZE_PROPERTY = "keyRotation.chunkSize";
+  private static final int    CHUNK_SIZE          = Integer.getInteger(CHUNK_SIZE_PROPERTY, 500);
+  private static final String DUTY_CYCLE_PROPERTY = "keyRotation.dutyCyclePercent";
+  private static final int    DUTY_CYCLE          = Math.max(1, Math.min(100, Integer.getInteger(DUTY_CYCLE_PROPERTY, 50)));
+
+  @Autowired
+  @Qualifier("rotationExecutor")
+  private Executor executor;
+
+  @Autowired
+  private KeyRotationRepository repository;
+
+  @Autowired
+  @Qualifier("rekeyScheduler")
+  private TaskExecutor scheduler;
+
+  @Autowired
+  private PersonService service;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private KeyVersionRepository versions;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  /**
+   * Restores the versions of the passphrase added by earlier rotations to
+   * the keyring for persons, before anything can read persons protected with
+   * them.
+   *
+   * @throws RuntimeException if a version cannot be unwrapped, for example,
+   *                          because the initial version of the passphrase
+   *                          has changed.
+   */
+  @Override
+  public void afterPropertiesSet()
+  {
+    final Keyring keyring = Person.getKeyring();
+
+    for (final KeyVersion version : versions.findAllByOrderByKeyVersionAsc())
+    {
+      final String passphrase = Person.unwrapPassphrase(version.getPassphrase());
+
+      keyring.add(version.getKeyVersion(), () -> passphrase, version.getSalt());
+    }
+  }
+
+  /**
+   * Gets the progress of the most recent rotation.
+   *
+   * @return The latest {@link KeyRotation}, {@code null} if no rotation has
+   * been started.
+   */
+  @Transactional(readOnly = true)
+  public KeyRotation getProgress()
+  {
+    return repository.findFirstByOrderByIdDesc();
+  }
+
+  /**
+   * Continues the most recent rotation, if it has not completed, until all
+   * persons have been processed.  Does nothing if the rotation is already
+   * being continued on another thread.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void resume()
+  {
+    if (!running.compareAndSet(false, true))
+    {
+      return;
+    }
+
+    try
+    {
+      final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+      KeyRotation rotation = repository.findFirstByOrderByIdDesc();
+
+      while (rotation != null && !rotation.isCompleted())
+      {
+        final long start = System.nanoTime();
+        final KeyRotation current = rotation;
+
+        rotation = transaction.execute(status -> process(current));
+
+        throttle(System.nanoTime() - start);
+      }
+    }
+    catch (final InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      running.set(false);
+    }
+  }
+
+  /**
+   * Adds a new version of the passphrase for persons, and starts
+   * re-encrypting all persons with keys derived from it in the background.
+   * New and saved persons use the new version straight away.
+   *
+   * @return The {@link KeyRotation} that records the progress of the
+   * rotation.
+   * @throws IllegalStateException if the previous rotation has not completed.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public synchronized KeyRotation rotate()
+  {
+    final KeyRotation previous = repository.findFirstByOrderByIdDesc();
+
+    if (previous != null && !previous.isCompleted())
+    {
+      throw new IllegalStateException("Key rotation to version [" + previous.getKeyVersion() + "] has not completed.");
+    }
+
+    final Keyring keyring = Person.getKeyring();
+    final int version = keyring.getVersion() + 1;
+    final String passphrase = new RandomPassphraseProvider().getPassphrase();
+    final String salt = Keyring.generateSalt();
+    final KeyRotation rotation = new TransactionTemplate(transactionManager).execute(status -> {
+      versions.save(new KeyVersion(version, Person.wrapPassphrase(passphrase), salt));
+
+      return repository.save(new KeyRotation(version, service.count()));
+    });
+
+    keyring.add(version, () -> passphrase, salt);
+
+    scheduler.execute(this::resume);
+
+    return rotation;
+  }
+
+  /**
+   * Re-encrypts the chunk of persons after the last checkpoint, and records
+   * a new checkpoint.  Must be called within a transaction.
+   *
+   * @param rotation The rotation to continue.
+   * @return The updated {@link KeyRotation}.
+   */
+  private KeyRotation process(final KeyRotation rotation)
+  {
+    final Keyset after = rotation.getAfterID() == null
+                         ? null
+                         : new Keyset(rotation.getAfterFirstName(), rotation.getAfterLastName(), rotation.getAfterID());
+    final List<Person> persons = service.list(after, CHUNK_SIZE);
+    final int rekeyed = service.rekey(persons, executor);
+
+    if (!persons.isEmpty())
+    {
+      final Person last = persons.get(persons.size() - 1);
+
+      rotation.advance(last.getFirstName(), last.getLastName(), last.getID(), persons.size(), rekeyed);
+    }
+
+    if (persons.size() < CHUNK_SIZE)
+    {
+      rotation.complete();
+    }
+
+    return repository.save(rotation);
+  }
+
+  /**
+   * Pauses after a chunk so that the rotation is busy for no more than the
+   * duty cycle.
+   *
+   * @param busy The time taken by the chunk, in nanoseconds.
+   * @throws InterruptedException if the thread is interrupted while pausing.
+   */
+  private void throttle(final long busy) throws InterruptedException
+  {
+    TimeUnit.NANOSECONDS.sleep(busy * (100 - DUTY_CYCLE) / DUTY_CYCLE);
+  }
+}
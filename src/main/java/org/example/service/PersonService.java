@@ -1,37 +1,286 @@
 package org.example.service;
 
+import org.example.data.Keyset;
 import org.example.data.PersonRepository;
 import org.example.domain.Person;
+import org.example.domain.PersonName;
+import org.example.domain.PersonView;
+import org.example.lang.Pair;
+import org.example.metrics.Metrics;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Business logic operations for {@link Person}.
+ *
+ * <p>Keeps a version number for the registered persons, which changes every
+ * time persons are added or changed, so that views of the persons can be
+ * cached and revalidated cheaply.  The version starts at the time the
+ * service is created, in milliseconds, so that versions are not reused
+ * after a restart.</p>
  */
 @Service
 @Transactional
 public class PersonService
 {
+  private static final int    ENCRYPTION_BATCH_SIZE      = 100;
+  private static final String IMPORT_CHUNK_SIZE_PROPERTY = "person.importChunkSize";
+  private static final int    IMPORT_CHUNK_SIZE          = Integer.getInteger(IMPORT_CHUNK_SIZE_PROPERTY, 1000);
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  @Qualifier("cryptoExecutor")
+  private Executor executor;
+
   @Autowired
   private PersonRepository repository;
 
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private volatile long lastModified = System.currentTimeMillis();
+
+  private final AtomicLong version = new AtomicLong(lastModified);
+
+  /**
+   * Gets the number of registered persons.
+   *
+   * @return The number of registered persons.
+   */
+  public long count()
+  {
+    return repository.countAll();
+  }
+
+  /**
+   * Finds the persons with a specified social benefits number, with their
+   * sensitive personal information decrypted.
+   *
+   * @param socialBenefitsNumber The social benefits number to look for.
+   * @return An immutable {@link List} of {@link PersonView}s.
+   */
+  public List<PersonView> findBySocialBenefitsNumber(final String socialBenefitsNumber)
+  {
+    return Person.decrypt(repository.findBySocialBenefitsNumber(socialBenefitsNumber), executor);
+  }
+
+  /**
+   * Gets when persons were last added or changed.
+   *
+   * @return The time of the last change, in milliseconds since the epoch, or
+   * the time the service was created if there have been no changes since.
+   */
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public long getLastModified()
+  {
+    return lastModified;
+  }
+
+  /**
+   * Gets the version number for the registered persons, which changes every
+   * time persons are added or changed.  The version is read before the
+   * persons, so that a view is never associated with a version later than
+   * the persons it shows.
+   *
+   * @return The version number.
+   */
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public long getVersion()
+  {
+    return version.get();
+  }
+
   /**
-   * Gets all the registered persons.
+   * Imports persons in bulk.  Records are converted to persons, which
+   * encrypts their sensitive personal information, in parallel, and the
+   * persons are inserted into the database in chunks, each in a transaction
+   * of its own and using JDBC batching.  Each chunk is encrypted while the
+   * previous one is being inserted.  If a chunk fails, the chunks before it
+   * remain imported.
    *
+   * @param records The records to import.
+   * @param mapper  The function that converts a record to a {@link Person}.
+   * @param <T>     The type of records to import.
+   * @return The number of persons imported.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public <T> long importAll(final Stream<T> records, final Function<T, Person> mapper)
+  {
+    final Iterator<T> iterator = records.iterator();
+    final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    long count = 0;
+    CompletableFuture<List<Person>> next = encrypt(iterator, mapper);
+
+    while (next != null)
+    {
+      final List<Person> persons = next.join();
+
+      next = iterator.hasNext() ? encrypt(iterator, mapper) : null;
+
+      transaction.execute(status -> insert(persons));
+
+      changed();
+
+      count += persons.size();
+    }
+
+    return count;
+  }
+
+  /**
+   * Gets the names of all the registered persons, ordered by first name,
+   * last name and unique identifier.  The persons themselves, including
+   * their encrypted information, are not read.
+   *
+   * @return A {@link List} of {@link PersonName}s.
+   */
+  public List<PersonName> list()
+  {
+    return repository.findAllNames();
+  }
+
+  /**
+   * Gets a page of registered persons, ordered by first name, last name and
+   * unique identifier.
+   *
+   * @param after The position after which the page starts, {@code null} to
+   *              get the first page.
+   * @param size  The maximum number of persons to get.
    * @return A {@link List} of {@link Person}s.
    */
-  public List<Person> list()
+  public List<Person> list(final Keyset after, final int size)
+  {
+    final Pageable page = new PageRequest(0, size);
+
+    return after == null
+           ? repository.findFirstPage(page)
+           : repository.findPageAfter(after.getFirstName(), after.getLastName(), after.getID(), page);
+  }
+
+  /**
+   * Gets a page of registered persons, with their sensitive personal
+   * information decrypted in bulk.
+   *
+   * @param after The position after which the page starts, {@code null} to
+   *              get the first page.
+   * @param size  The maximum number of persons to get.
+   * @return An immutable {@link List} of {@link PersonView}s.
+   */
+  public List<PersonView> listDecrypted(final Keyset after, final int size)
   {
-    return repository.findAll(new Sort("firstName", "lastName"));
+    return Person.decrypt(list(after, size), executor);
   }
 
   /**
-   * Saves a person.
+   * Re-encrypts a chunk of persons in parallel, as and when required (see
+   * {@link Person#rekey()}), writes the changes to the database, and then
+   * removes the persons from the persistence context so that memory use
+   * does not grow with the number of persons.  Must be called within a
+   * transaction.
+   *
+   * @param persons  The persons to re-encrypt.
+   * @param executor The {@link Executor} to use for re-encrypting the
+   *                 persons.
+   * @return The number of persons re-encrypted.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public int rekey(final List<Person> persons, final Executor executor)
+  {
+    final List<CompletableFuture<Long>> batches = new ArrayList<>();
+
+    for (int i = 0; i < persons.size(); i += ENCRYPTION_BATCH_SIZE)
+    {
+      final List<Person> batch = persons.subList(i, Math.min(i + ENCRYPTION_BATCH_SIZE, persons.size()));
+
+      batches.add(CompletableFuture.supplyAsync(Metrics.propagate(() -> batch.stream()
+                                                                             .filter(Person::rekey)
+                                                                             .count())
+          , executor));
+    }
+
+    final int count = batches.stream().mapToInt(batch -> batch.join().intValue()).sum();
+
+    entityManager.flush();
+    entityManager.clear();
+
+    return count;
+  }
+
+  /**
+   * Re-encrypts, with a new key, every registered person whose secret is of
+   * an older kind, was generated with an earlier version of the passphrase,
+   * or records weaker key-generation parameters than those for new persons.
+   * Persons are processed a chunk at a time, in order of first name, last
+   * name and unique identifier, with each chunk re-encrypted in parallel and
+   * saved in a transaction of its own.  If a chunk fails, the
+   * chunks before it remain re-encrypted, and persons that are up-to-date are
+   * skipped cheaply when the operation is run again.
+   *
+   * @return The number of persons re-encrypted.
+   */
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public long rekeyAll()
+  {
+    final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    long count = 0;
+    Keyset after = null;
+
+    while (true)
+    {
+      final Keyset position = after;
+      final Pair<List<Person>, Integer> chunk = transaction.execute(status -> {
+        final List<Person> persons = list(position, IMPORT_CHUNK_SIZE);
+
+        return Pair.of(persons, rekey(persons, executor));
+      });
+
+      count += chunk.getItem2();
+
+      if (chunk.getItem1().size() < IMPORT_CHUNK_SIZE)
+      {
+        return count;
+      }
+
+      final Person last = chunk.getItem1().get(chunk.getItem1().size() - 1);
+
+      after = new Keyset(last.getFirstName(), last.getLastName(), last.getID());
+    }
+  }
+
+  /**
+   * Saves a person.  A person whose secret is of an older kind is
+   * re-encrypted with a new secret before being saved.  Changes are
+   * encrypted before the person is saved, as a detached person is saved by
+   * copying its stored state, which does not include changes that have not
+   * been encrypted yet, to the managed person.  The version number for the
+   * registered persons changes once the person has been committed.
    *
    * @param person The person to save.
    * @return The saved person.
@@ -39,6 +288,123 @@ public class PersonService
   @Transactional(propagation = Propagation.REQUIRED)
   public Person save(final Person person)
   {
+    person.rekey();
+    person.encrypt();
+
+    // Views of the persons are out-of-date only once the change is visible.
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+    {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void afterCommit()
+      {
+        changed();
+      }
+    });
+
     return repository.saveAndFlush(person);
   }
+
+  /**
+   * Streams all the registered persons, ordered by first name, last name
+   * and unique identifier, to a function.  Persons are fetched from the
+   * database in small batches and detached from the persistence context as
+   * they are consumed, so that memory use does not grow with the number of
+   * persons.
+   *
+   * @param function The function to apply to the {@link Stream} of
+   *                 {@link Person}s.
+   * @param <T>      The type of result produced by the function.
+   * @return The result produced by the function.
+   */
+  @Transactional(readOnly = true)
+  public <T> T stream(final Function<Stream<Person>, T> function)
+  {
+    try (final Stream<Person> persons = repository.streamAll())
+    {
+      return function.apply(persons.peek(entityManager::detach));
+    }
+  }
+
+  /**
+   * Records that persons have been added or changed.
+   */
+  private void changed()
+  {
+    lastModified = System.currentTimeMillis();
+    version.incrementAndGet();
+  }
+
+  /**
+   * Converts the next chunk of records to persons, and encrypts them, in
+   * parallel.
+   *
+   * @param records The records to convert.
+   * @param mapper  The function that converts a record to a {@link Person}.
+   * @param <T>     The type of records to convert.
+   * @return The {@link Person}s, in the same order as the records, once
+   * they are available.
+   */
+  private <T> CompletableFuture<List<Person>> encrypt(final Iterator<T> records, final Function<T, Person> mapper)
+  {
+    final List<CompletableFuture<List<Person>>> batches = new ArrayList<>();
+
+    for (int i = 0; i < IMPORT_CHUNK_SIZE && records.hasNext(); i += ENCRYPTION_BATCH_SIZE)
+    {
+      final List<T> batch = new ArrayList<>(ENCRYPTION_BATCH_SIZE);
+
+      while (batch.size() < ENCRYPTION_BATCH_SIZE && records.hasNext())
+      {
+        batch.add(records.next());
+      }
+
+      batches.add(CompletableFuture.supplyAsync(Metrics.propagate(() -> batch.stream()
+                                                                             .map(mapper)
+                                                                             .peek(Person::encrypt)
+                                                                             .collect(Collectors.toList()))
+          , executor));
+    }
+
+    return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[batches.size()]))
+                            .thenApply(done -> batches.stream()
+                                                      .flatMap(batch -> batch.join().stream())
+                                                      .collect(Collectors.toList()));
+  }
+
+  /**
+   * Inserts new persons into the database in JDBC batches, and then removes
+   * them from the persistence context so that memory use does not grow with
+   * the number of persons imported.  The persons are not added to the
+   * second-level cache, so that an import does not evict the persons being
+   * read.
+   *
+   * @param persons The persons to insert.
+   * @return {@code null}.
+   */
+  private Void insert(final List<Person> persons)
+  {
+    final Session session = entityManager.unwrap(Session.class);
+    final CacheMode mode = session.getCacheMode();
+
+    session.setCacheMode(CacheMode.IGNORE);
+
+    try
+    {
+      for (final Person person : persons)
+      {
+        entityManager.persist(person);
+      }
+
+      entityManager.flush();
+      entityManager.clear();
+    }
+    finally
+    {
+      session.setCacheMode(mode);
+    }
+
+    return null;
+  }
 }
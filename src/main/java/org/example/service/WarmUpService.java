@@ -0,0 +1,179 @@
+package org.example.service;
+
+import org.example.domain.Person;
+import org.example.security.keygen.KeyGenerator;
+import org.example.security.keygen.KeyParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms up the cryptographic stack once the application has started, so
+ * that the first requests after a deployment are not slowed down by
+ * one-off initialization.  The keys and algorithms for persons are prepared
+ * (see {@link Person#warmUp()}) on the worker pool for cryptographic work
+ * while, in parallel, the first page of persons, which is what the home page
+ * shows first, is read and decrypted, which loads the keys for those persons
+ * and fills the caches with them.  Persons do not record when they were
+ * last used, so the first page of persons stands in for the persons most
+ * likely to be requested first.
+ *
+ * <p>Warm-up runs in the background, so that it does not delay start-up,
+ * and the application reports itself ready (see {@link #isReady()}) only
+ * once warm-up has finished.  Warm-up is an optimization only: the
+ * application is ready even if warm-up fails, in which case the failure is
+ * logged.</p>
+ *
+ * <p>If the {@code person.keyDerivationMillis} system property is set, the
+ * number of rounds of the key-derivation algorithm that takes that many
+ * milliseconds on this machine is measured once warm-up has finished, and
+ * logged as a suggestion for the {@code person.keyRounds} system property.
+ * The measurement is not used for protecting persons, as it differs from one
+ * start to the next.</p>
+ *
+ * <p>Declared in {@code springServiceContext.xml}, and started after all
+ * other beans that are started automatically.</p>
+ */
+public class WarmUpService implements SmartLifecycle
+{
+  private static final String KEY_DERIVATION_MILLIS_PROPERTY = "person.keyDerivationMillis";
+  private static final Long   KEY_DERIVATION_MILLIS          = Long.getLong(KEY_DERIVATION_MILLIS_PROPERTY);
+  private static final Logger LOGGER                         = LoggerFactory.getLogger(WarmUpService.class);
+  private static final String PERSONS_PROPERTY               = "warmUp.persons";
+  private static final int    PERSONS                        = Integer.getInteger(PERSONS_PROPERTY, 50);
+
+  @Autowired
+  @Qualifier("cryptoExecutor")
+  private Executor executor;
+
+  @Autowired
+  private PersonService service;
+
+  // Reading persons fans out to the worker pool and waits for it, so must
+  // not run on the pool itself.
+  private final Executor reader = new SimpleAsyncTaskExecutor("warm-up-");
+
+  private volatile CompletableFuture<Void> warmUp;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getPhase()
+  {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isAutoStartup()
+  {
+    return true;
+  }
+
+  /**
+   * Gets whether the application is ready to serve requests, that is,
+   * whether warm-up has finished.
+   *
+   * @return {@code true} if warm-up has finished, whether or not it
+   * succeeded, {@code false} if it is still running or has not started.
+   */
+  public boolean isReady()
+  {
+    final CompletableFuture<Void> current = warmUp;
+
+    return current != null && current.isDone();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isRunning()
+  {
+    return warmUp != null;
+  }
+
+  /**
+   * Starts warming up in the background.
+   */
+  @Override
+  public synchronized void start()
+  {
+    if (warmUp == null)
+    {
+      warmUp = CompletableFuture.allOf(run("prepare the keys for persons", Person::warmUp, executor)
+          , run("read the first page of persons", () -> service.listDecrypted(null, PERSONS), reader));
+
+      if (KEY_DERIVATION_MILLIS != null)
+      {
+        warmUp.whenCompleteAsync((result, failure) -> suggestKeyRounds(KEY_DERIVATION_MILLIS), reader);
+      }
+    }
+  }
+
+  /**
+   * Stops reporting the application as ready.  Warm-up that is still running
+   * is left to finish.
+   */
+  @Override
+  public synchronized void stop()
+  {
+    warmUp = null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop(final Runnable callback)
+  {
+    stop();
+
+    callback.run();
+  }
+
+  /**
+   * Runs a warm-up task in the background, logging it if it fails.
+   *
+   * @param description A description of the task, for logging.
+   * @param task        The task.
+   * @param executor    The executor to run the task on.
+   * @return A {@link CompletableFuture} that completes when the task has
+   * finished.
+   */
+  private static CompletableFuture<Void> run(final String description, final Runnable task, final Executor executor)
+  {
+    return CompletableFuture.runAsync(task, executor).whenComplete((result, failure) -> {
+      if (failure != null)
+      {
+        LOGGER.warn("Warm-up failed to {}.", description, failure);
+      }
+    });
+  }
+
+  /**
+   * Measures the number of rounds of the key-derivation algorithm that takes
+   * a specified time on this machine, and logs it as a suggestion.
+   *
+   * @param millis The time that deriving a key should take, in milliseconds.
+   */
+  private void suggestKeyRounds(final long millis)
+  {
+    final KeyParameters current = Person.getKeyParameters();
+    final KeyParameters suggested = new KeyGenerator(KeyParameters.DEFAULT).calibrate(millis, TimeUnit.MILLISECONDS);
+
+    LOGGER.info("Deriving a key takes about {} ms with {} rounds on this machine, and persons use {} rounds."
+                + " Start with -Dperson.keyRounds={} to use the suggested rounds.", millis, suggested.getRounds()
+        , current.getRounds(), suggested.getRounds());
+  }
+}
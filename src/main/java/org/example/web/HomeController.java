@@ -1,41 +1,195 @@
 package org.example.web;
 
+import org.example.data.Keyset;
 import org.example.domain.Person;
+import org.example.domain.PersonView;
+import org.example.metrics.Metrics;
 import org.example.service.PersonService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 /**
- * Home page controller.
+ * Home page controller.  Pages of persons are served with an {@code ETag}
+ * and a {@code Last-Modified} time, derived from the version of the
+ * registered persons, so that a client revalidating a page that has not
+ * changed gets a {@code 304 Not Modified} response without the persons
+ * being read, decrypted or rendered again.
+ *
+ * <p>Reading, decrypting, encrypting and importing persons is handed off to
+ * the request executor (see {@code springWebContext.xml}), so that container
+ * threads are not held while it is done.  Requests that the executor cannot
+ * accept are answered with {@code 503 Service Unavailable}.</p>
  */
 @Controller
 @RequestMapping("/")
 public class HomeController
 {
+  private static final String CACHE_CONTROL = "private, no-cache";
+  private static final String CSV_SEPARATOR = ",";
+  private static final int    PAGE_SIZE     = 50;
+
   @Autowired
   private PersonService service;
 
+  /**
+   * Reports that a request was rejected because the server is too busy to
+   * handle it.
+   */
+  @ExceptionHandler(RejectedExecutionException.class)
+  @ResponseBody
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public String busy()
+  {
+    return "Too many requests are being handled, try again later.";
+  }
+
+  /**
+   * Imports persons in bulk from a {@code CSV} document with one person per
+   * line, given as first name, last name and social benefits number.  Blank
+   * lines are ignored.
+   */
+  @RequestMapping(consumes = "text/csv", method = RequestMethod.POST, produces = "text/plain", value = "/import")
+  @ResponseBody
+  public Callable<String> importAll(final Reader reader)
+  {
+    return async(() -> {
+      try (final BufferedReader lines = new BufferedReader(reader))
+      {
+        return service.importAll(lines.lines().filter(line -> !line.trim().isEmpty()), this::parse)
+               + " persons imported.";
+      }
+      catch (final IOException e)
+      {
+        throw new RuntimeException(e);
+      }
+    });
+  }
+
   /**
    * Saves a person and displays the home page.
    */
   @RequestMapping(method = RequestMethod.POST)
-  public String save(final Person person, final Model model)
+  public Callable<String> save(final Person person, final Model model)
   {
-    service.save(person);
+    return async(() -> {
+      service.save(person);
 
-    return show(model);
+      return show(null, model);
+    });
   }
 
   /**
-   * Displays the home page.
+   * Displays a page of persons on the home page, unless the client already
+   * has the current version of the page.
    */
   @RequestMapping(method = RequestMethod.GET)
-  public String show(final Model model)
+  public Callable<String> show(@RequestParam(required = false, value = "afterFirstName") final String afterFirstName
+      , @RequestParam(required = false, value = "afterLastName") final String afterLastName
+      , @RequestParam(required = false, value = "afterID") final Long afterID
+      , final WebRequest request
+      , final HttpServletResponse response
+      , final Model model)
+  {
+    // The version is read before the persons, so that it is never later
+    // than the persons displayed.
+    final long lastModified = service.getLastModified();
+    final String etag = "\"" + service.getVersion() + "\"";
+
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+
+    if (request.checkNotModified(etag, lastModified))
+    {
+      return null;
+    }
+
+    final Keyset after = afterFirstName != null && afterLastName != null && afterID != null
+                         ? new Keyset(afterFirstName, afterLastName, afterID)
+                         : null;
+
+    return async(() -> show(after, model));
+  }
+
+  /**
+   * Prepares work for a request to be done on the request executor, and
+   * counted towards the request.
+   *
+   * @param task The work to do.
+   * @param <T>  The type of result produced by the work.
+   * @return A {@link Callable} that does the work.
+   */
+  private <T> Callable<T> async(final Supplier<T> task)
+  {
+    return Metrics.propagate(task)::get;
+  }
+
+  /**
+   * Gets the position at which the page following a page of persons starts.
+   *
+   * @param persons A page of persons.
+   * @return A {@link Keyset}.
+   */
+  private Keyset next(final List<PersonView> persons)
+  {
+    final PersonView last = persons.get(persons.size() - 1);
+
+    return new Keyset(last.getFirstName(), last.getLastName(), last.getID());
+  }
+
+  /**
+   * Parses a person from a line of a {@code CSV} document.
+   *
+   * @param line The line to parse.
+   * @return A {@link Person}.
+   * @throws IllegalArgumentException if the line does not have exactly three
+   *                                  fields.
+   */
+  private Person parse(final String line)
+  {
+    final String[] fields = line.split(CSV_SEPARATOR, -1);
+
+    if (fields.length != 3)
+    {
+      throw new IllegalArgumentException("Line [" + line + "] must have exactly three fields.");
+    }
+
+    return new Person(fields[0].trim(), fields[1].trim(), fields[2].trim());
+  }
+
+  /**
+   * Displays a page of persons on the home page.
+   *
+   * @param after The position after which the page starts, {@code null} to
+   *              display the first page.
+   * @param model The model for the page.
+   * @return The name of the view.
+   */
+  private String show(final Keyset after, final Model model)
   {
-    model.addAttribute("persons", service.list());
+    final List<PersonView> persons = service.listDecrypted(after, PAGE_SIZE);
+
+    model.addAttribute("after", after);
+    model.addAttribute("next", persons.size() == PAGE_SIZE ? next(persons) : null);
+    model.addAttribute("persons", persons);
+    model.addAttribute("total", service.count());
 
     return "home";
   }
@@ -0,0 +1,91 @@
+package org.example.web;
+
+import org.example.domain.KeyRotation;
+import org.example.service.KeyRotationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Date;
+
+/**
+ * Key rotation controller.  Starts rotations of the passphrase for persons
+ * and reports their progress, as plain text.  Starting a rotation
+ * re-encrypts all persons, so is refused with {@code 403 Forbidden} unless
+ * enabled with the {@code keyRotation.enabled} system property.
+ */
+@Controller
+@RequestMapping("/rotation")
+public class KeyRotationController
+{
+  private static final String  ENABLED_PROPERTY = "keyRotation.enabled";
+  private static final boolean ENABLED          = Boolean.getBoolean(ENABLED_PROPERTY);
+
+  @Autowired
+  private KeyRotationService service;
+
+  /**
+   * Reports the progress of the most recent rotation, with an estimate of
+   * when it will complete.
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = "text/plain")
+  @ResponseBody
+  public String progress()
+  {
+    final KeyRotation rotation = service.getProgress();
+
+    return rotation == null
+           ? "No key rotation has been started."
+           : describe(rotation);
+  }
+
+  /**
+   * Starts a rotation and reports its progress, if rotations are enabled.
+   */
+  @RequestMapping(method = RequestMethod.POST, produces = "text/plain")
+  public ResponseEntity<String> rotate()
+  {
+    return ENABLED
+           ? new ResponseEntity<>(describe(service.rotate()), HttpStatus.OK)
+           : new ResponseEntity<>("Key rotation is disabled.", HttpStatus.FORBIDDEN);
+  }
+
+  /**
+   * Describes the progress of a rotation.
+   *
+   * @param rotation The rotation.
+   * @return A description of the progress of the rotation.
+   */
+  private String describe(final KeyRotation rotation)
+  {
+    final StringBuilder description = new StringBuilder();
+
+    description.append("Key version: ").append(rotation.getKeyVersion())
+               .append("\nStatus: ").append(rotation.isCompleted() ? "completed" : "in progress")
+               .append("\nProcessed: ").append(rotation.getProcessed()).append(" of ").append(rotation.getTotal())
+               .append("\nRe-encrypted: ").append(rotation.getRekeyed())
+               .append("\nStarted: ").append(format(rotation.getStarted()))
+               .append("\nUpdated: ").append(format(rotation.getUpdated()))
+               .append(rotation.isCompleted() ? "\nCompleted: " : "\nEstimated completion: ")
+               .append(format(rotation.getEstimatedCompletion()))
+               .append('\n');
+
+    return description.toString();
+  }
+
+  /**
+   * Formats a time as an {@code ISO-8601} instant.
+   *
+   * @param time The time to format.
+   * @return The formatted time, {@code unknown} if {@code time} is
+   * {@code null}.
+   */
+  private String format(final Date time)
+  {
+    return time == null ? "unknown" : time.toInstant().toString();
+  }
+}
@@ -0,0 +1,34 @@
+package org.example.web;
+
+import org.example.service.WarmUpService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Readiness controller.  Reports, as plain text, whether the application
+ * has finished warming up and is ready to serve requests, with
+ * {@code 503 Service Unavailable} until it is, so that a load balancer
+ * sends requests to a newly deployed instance only once it is warm.
+ */
+@Controller
+@RequestMapping("/ready")
+public class ReadinessController
+{
+  @Autowired
+  private WarmUpService service;
+
+  /**
+   * Reports whether the application is ready to serve requests.
+   */
+  @RequestMapping(method = RequestMethod.GET, produces = "text/plain")
+  public ResponseEntity<String> ready()
+  {
+    return service.isReady()
+           ? new ResponseEntity<>("Ready.", HttpStatus.OK)
+           : new ResponseEntity<>("Warming up.", HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
@@ -0,0 +1,157 @@
+package org.example.data;
+
+import org.example.domain.Person;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.Query;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the queries in {@link PersonRepository}, checking how the
+ * database executes them against the schema generated for {@link Person}.
+ */
+public class PersonRepositoryTest
+{
+  private static final String NAME_INDEX = "PERSON_NAME_INDEX";
+  private static final String URL        = "jdbc:h2:mem:person-repository-test;DB_CLOSE_DELAY=-1";
+
+  private static final ThreadLocal<String> SQL = new ThreadLocal<>();
+
+  private static SessionFactory sessionFactory;
+
+  /**
+   * Generates the schema for {@link Person}.  The {@code SQL} for every
+   * statement prepared is remembered, so that queries can be explained.
+   */
+  @BeforeClass
+  public static void setUp()
+  {
+    final Configuration configuration = new Configuration()
+        .addAnnotatedClass(Person.class)
+        .setInterceptor(new EmptyInterceptor()
+        {
+          @Override
+          public String onPrepareStatement(final String sql)
+          {
+            SQL.set(sql);
+
+            return sql;
+          }
+        })
+        .setProperty(AvailableSettings.CACHE_REGION_FACTORY, "org.hibernate.cache.ehcache.EhCacheRegionFactory")
+        .setProperty(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+        .setProperty(AvailableSettings.HBM2DDL_AUTO, "create")
+        .setProperty(AvailableSettings.URL, URL)
+        .setProperty(AvailableSettings.USE_NEW_ID_GENERATOR_MAPPINGS, "true")
+        .setProperty("javax.persistence.validation.mode", "none");
+
+    sessionFactory = configuration.buildSessionFactory(new StandardServiceRegistryBuilder()
+                                                           .applySettings(configuration.getProperties())
+                                                           .build());
+  }
+
+  /**
+   * Drops the schema.
+   */
+  @AfterClass
+  public static void tearDown()
+  {
+    sessionFactory.close();
+  }
+
+  /**
+   * Tests that {@link PersonRepository#findAllNames()} reads the names from
+   * the name index, without reading the sensitive columns of persons.
+   */
+  @Test
+  public void testFindAllNames() throws Exception
+  {
+    final String sql = getSQL("findAllNames");
+    final String plan = explain(sql);
+
+    assertFalse(sql, sql.toLowerCase(Locale.ROOT).contains("social_benefits_number"));
+    assertFalse(sql, sql.toLowerCase(Locale.ROOT).contains("secret"));
+    assertTrue(plan, plan.contains(NAME_INDEX));
+  }
+
+  /**
+   * Tests that {@link PersonRepository#findFirstPage} reads persons using
+   * the name index.
+   */
+  @Test
+  public void testFindFirstPage() throws Exception
+  {
+    final String plan = explain(getSQL("findFirstPage"));
+
+    assertTrue(plan, plan.contains(NAME_INDEX));
+  }
+
+  /**
+   * Gets the execution plan for a query.
+   *
+   * @param sql The query.
+   * @return The execution plan.
+   * @throws SQLException if the plan cannot be obtained.
+   */
+  private String explain(final String sql) throws SQLException
+  {
+    try (final Connection connection = DriverManager.getConnection(URL);
+         final PreparedStatement statement = connection.prepareStatement("explain " + sql);
+         final ResultSet plan = statement.executeQuery())
+    {
+      assertTrue(plan.next());
+
+      return plan.getString(1);
+    }
+  }
+
+  /**
+   * Gets the {@code SQL} for a query declared on a method of
+   * {@link PersonRepository}, as prepared by Hibernate when the query is
+   * run.
+   *
+   * @param method The name of the method.
+   * @return The {@code SQL} for the query.
+   */
+  private String getSQL(final String method)
+  {
+    for (final Method candidate : PersonRepository.class.getMethods())
+    {
+      if (candidate.getName().equals(method))
+      {
+        final Session session = sessionFactory.openSession();
+
+        try
+        {
+          SQL.remove();
+
+          session.createQuery(candidate.getAnnotation(Query.class).value()).list();
+
+          return SQL.get();
+        }
+        finally
+        {
+          session.close();
+        }
+      }
+    }
+
+    throw new IllegalArgumentException("Method [" + method + "] does not exist.");
+  }
+}
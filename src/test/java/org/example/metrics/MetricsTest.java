@@ -0,0 +1,59 @@
+package org.example.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Metrics}.
+ */
+public class MetricsTest
+{
+  private static final MetricId OPERATION = new MetricId("test_operation");
+
+  /**
+   * Tests that operations are counted for the request being tracked,
+   * including operations performed on other threads on its behalf.
+   */
+  @Test
+  public void testRequestOperations()
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try
+    {
+      Metrics.beginRequest();
+      Metrics.recordCryptoOperation(OPERATION, System.nanoTime());
+
+      CompletableFuture.allOf(
+          CompletableFuture.runAsync(Metrics.propagate(() -> Metrics.recordCryptoOperation(OPERATION, System.nanoTime()))
+              , executor)
+          , CompletableFuture.runAsync(() -> Metrics.recordCryptoOperation(OPERATION, System.nanoTime()), executor))
+                       .join();
+
+      assertEquals(2, Metrics.endRequest());
+      assertEquals(0, Metrics.endRequest());
+      assertEquals(3, Metrics.getRegistry().timer(OPERATION).getCount());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Tests that a metric cannot be asked for as a different type.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeMismatch()
+  {
+    final MetricRegistry registry = new MetricRegistry();
+
+    registry.counter(new MetricId("mismatch"));
+    registry.timer(new MetricId("mismatch"));
+  }
+}
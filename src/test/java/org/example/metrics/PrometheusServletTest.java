@@ -0,0 +1,46 @@
+package org.example.metrics;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PrometheusServlet}.
+ */
+public class PrometheusServletTest
+{
+  /**
+   * Tests that counters, histograms and timers are written in the
+   * Prometheus text exposition format.
+   */
+  @Test
+  public void testWrite()
+  {
+    final MetricRegistry registry = new MetricRegistry();
+
+    registry.counter(new MetricId("hits")).increment();
+    registry.histogram(new MetricId("operations"), 1, 10).record(5);
+    registry.timer(new MetricId("query", "method", "find")).record(2_000L);
+    registry.timer(new MetricId("query", "method", "save")).record(20_000L);
+
+    final StringWriter text = new StringWriter();
+
+    PrometheusServlet.write(registry, new PrintWriter(text, true));
+
+    final String output = text.toString();
+
+    assertTrue(output.contains("# TYPE hits_total counter\nhits_total 1\n"));
+    assertTrue(output.contains("# TYPE operations histogram\n"
+                               + "operations_bucket{le=\"1\"} 0\n"
+                               + "operations_bucket{le=\"10\"} 1\n"
+                               + "operations_bucket{le=\"+Inf\"} 1\n"
+                               + "operations_sum 5\n"
+                               + "operations_count 1\n"));
+    assertTrue(output.contains("query_seconds_bucket{method=\"find\",le=\"5.0E-6\"} 1\n"));
+    assertTrue(output.contains("query_seconds_sum{method=\"save\"} 2.0E-5\n"));
+    assertEquals(output.indexOf("# TYPE query_seconds"), output.lastIndexOf("# TYPE query_seconds"));
+  }
+}
@@ -0,0 +1,72 @@
+package org.example.security;
+
+import org.example.security.keygen.FixedPassphraseProvider;
+import org.example.security.keygen.KeyGenerator;
+import org.example.security.keygen.Keyring;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link BlindIndexer}.
+ */
+public class BlindIndexerTest
+{
+  private final KeyGenerator generator = new KeyGenerator();
+
+  /**
+   * Tests that equal values have the same index, regardless of separators,
+   * and different values have different indexes.
+   */
+  @Test
+  public void testIndex()
+  {
+    final BlindIndexer indexer = new BlindIndexer(generator, new FixedPassphraseProvider());
+    final String index = indexer.index("123-45-6789");
+
+    assertNotNull(index);
+    assertEquals(index, indexer.index("123-45-6789"));
+    assertEquals(index, indexer.index("123 45 6789"));
+    assertEquals(index, indexer.index("123456789"));
+    assertNotEquals(index, indexer.index("123-45-6780"));
+    assertFalse(index.contains("6789"));
+  }
+
+  /**
+   * Tests that indexes depend on the passphrase, so that they cannot be
+   * computed without it.
+   */
+  @Test
+  public void testIndexKey()
+  {
+    final BlindIndexer indexer = new BlindIndexer(generator, new FixedPassphraseProvider());
+    final BlindIndexer other = new BlindIndexer(generator, new FixedPassphraseProvider());
+
+    assertNotEquals(indexer.index("123-45-6789"), other.index("123-45-6789"));
+  }
+
+  /**
+   * Tests that indexes depend on the salt, so that indexes computed by
+   * different deployments with the same passphrase do not match, while
+   * indexes computed with the same salt do.
+   */
+  @Test
+  public void testIndexSalt()
+  {
+    final FixedPassphraseProvider provider = new FixedPassphraseProvider();
+    final String salt = Keyring.generateSalt();
+    final String index = new BlindIndexer(generator, provider, salt).index("123-45-6789");
+
+    assertEquals(index, new BlindIndexer(generator, provider, salt).index("123-45-6789"));
+    assertNotEquals(index, new BlindIndexer(generator, provider, Keyring.generateSalt()).index("123-45-6789"));
+  }
+
+  /**
+   * Tests that {@code null} values are passed through unchanged.
+   */
+  @Test
+  public void testNull()
+  {
+    assertNull(new BlindIndexer(generator, new FixedPassphraseProvider()).index(null));
+  }
+}
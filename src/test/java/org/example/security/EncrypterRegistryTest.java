@@ -0,0 +1,53 @@
+package org.example.security;
+
+import org.example.lang.Pair;
+import org.example.security.keygen.FixedPassphraseProvider;
+import org.example.security.keygen.KeyGenerator;
+import org.example.security.keygen.KeyManager;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link EncrypterRegistry}.
+ */
+public class EncrypterRegistryTest
+{
+  private final KeyManager manager = new KeyManager(new KeyGenerator()
+      , new FixedPassphraseProvider()
+      , KeyManager.Mode.ENVELOPE);
+
+  /**
+   * Tests that an encrypter obtained from a secret decrypts what the
+   * encrypter for the new record encrypted, and is shared thereafter.
+   */
+  @Test
+  public void testGetEncrypter()
+  {
+    final EncrypterRegistry registry = new EncrypterRegistry(manager, 10);
+    final Pair<Encrypter, String> pair = registry.newEncrypter();
+    final String encrypted = pair.getItem1().encrypt("123-45-6789");
+
+    assertSame(pair.getItem1(), registry.getEncrypter(pair.getItem2()));
+    assertEquals("123-45-6789", new EncrypterRegistry(manager, 10).getEncrypter(pair.getItem2()).decrypt(encrypted));
+  }
+
+  /**
+   * Tests that the least-recently-used encrypter is evicted once the
+   * registry is full.
+   */
+  @Test
+  public void testMaximumSize()
+  {
+    final EncrypterRegistry registry = new EncrypterRegistry(manager, 2);
+    final String first = registry.newEncrypter().getItem2();
+    final Encrypter encrypter = registry.getEncrypter(first);
+
+    registry.newEncrypter();
+    registry.getEncrypter(first);
+    registry.newEncrypter();
+
+    assertEquals(2, registry.size());
+    assertSame(encrypter, registry.getEncrypter(first));
+  }
+}
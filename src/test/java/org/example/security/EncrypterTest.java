@@ -0,0 +1,317 @@
+package org.example.security;
+
+import org.example.security.keygen.KeyGenerator;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Encrypter}.
+ */
+public class EncrypterTest
+{
+  /**
+   * Tests that a single {@link Encrypter} can be shared by multiple threads,
+   * and alternated with another {@link Encrypter} on the same thread.
+   */
+  @Test
+  public void testConcurrentUse() throws Exception
+  {
+    final KeyGenerator generator = new KeyGenerator();
+    final Encrypter shared = new Encrypter(generator.generateKey(getRandomString()).getItem1());
+    final Encrypter other = new Encrypter(generator.generateKey(getRandomString()).getItem1());
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try
+    {
+      final List<Future<Boolean>> results = new ArrayList<>();
+
+      for (int i = 0; i < 16; ++i)
+      {
+        results.add(executor.submit(new Callable<Boolean>()
+        {
+          /**
+           * {@inheritDoc}
+           */
+          @Override
+          public Boolean call()
+          {
+            for (int j = 0; j < 100; ++j)
+            {
+              final String text = getRandomString();
+
+              if (!text.equals(shared.decrypt(shared.encrypt(text)))
+                  || !text.equals(other.decrypt(other.encrypt(text))))
+              {
+                return false;
+              }
+            }
+
+            return true;
+          }
+        }));
+      }
+
+      for (final Future<Boolean> result : results)
+      {
+        assertTrue(result.get());
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Tests that data encrypted with direct buffers can be decrypted again.
+   */
+  @Test
+  public void testEncryptBuffer()
+  {
+    final Encrypter encrypter = new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1());
+    final byte[] data = getRandomString().getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer plain = ByteBuffer.allocateDirect(data.length);
+    final ByteBuffer encrypted = ByteBuffer.allocateDirect(encrypter.getEncryptedLength(data.length));
+    final ByteBuffer decrypted = ByteBuffer.allocateDirect(data.length);
+
+    plain.put(data).flip();
+
+    assertEquals(encrypted.capacity(), encrypter.encrypt(plain, encrypted));
+
+    encrypted.flip();
+
+    assertEquals(data.length, encrypter.decrypt(encrypted, decrypted));
+
+    final byte[] result = new byte[data.length];
+
+    decrypted.flip();
+    decrypted.get(result);
+
+    assertArrayEquals(data, result);
+  }
+
+  /**
+   * Tests that a file encrypted through a memory mapping can be decrypted
+   * again.
+   */
+  @Test
+  public void testEncryptFile() throws Exception
+  {
+    final Encrypter encrypter = new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1());
+    final byte[] data = getRandomBytes(3 * StreamCipher.CHUNK_LENGTH + 17);
+    final Path plain = Files.createTempFile("plain", ".bin");
+    final Path encrypted = Files.createTempFile("encrypted", ".bin");
+    final Path decrypted = Files.createTempFile("decrypted", ".bin");
+
+    try
+    {
+      Files.write(plain, data);
+
+      assertEquals(data.length, encrypter.encrypt(plain, encrypted));
+      assertEquals(data.length, encrypter.decrypt(encrypted, decrypted));
+      assertArrayEquals(data, Files.readAllBytes(decrypted));
+    }
+    finally
+    {
+      Files.delete(plain);
+      Files.delete(encrypted);
+      Files.delete(decrypted);
+    }
+  }
+
+  /**
+   * Tests that streams of various lengths, including empty streams and
+   * streams that end on a chunk boundary, can be encrypted and decrypted.
+   */
+  @Test
+  public void testEncryptStream() throws Exception
+  {
+    final Encrypter encrypter = new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1());
+
+    for (final int length : new int[] { 0, 1, StreamCipher.CHUNK_LENGTH, 2 * StreamCipher.CHUNK_LENGTH + 1 })
+    {
+      final byte[] data = getRandomBytes(length);
+      final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+
+      assertEquals(length, encrypter.encrypt(Channels.newChannel(new ByteArrayInputStream(data)),
+                                             Channels.newChannel(encrypted)));
+
+      final ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+
+      try (final InputStream input = encrypter.decryptingStream(new ByteArrayInputStream(encrypted.toByteArray())))
+      {
+        final byte[] buffer = new byte[1000];
+
+        for (int read = input.read(buffer); read != -1; read = input.read(buffer))
+        {
+          decrypted.write(buffer, 0, read);
+        }
+      }
+
+      assertArrayEquals(data, decrypted.toByteArray());
+
+      final ByteArrayOutputStream reencrypted = new ByteArrayOutputStream();
+
+      try (final OutputStream output = encrypter.encryptingStream(reencrypted))
+      {
+        output.write(data);
+      }
+
+      decrypted.reset();
+
+      encrypter.decrypt(Channels.newChannel(new ByteArrayInputStream(reencrypted.toByteArray())),
+                        Channels.newChannel(decrypted));
+
+      assertArrayEquals(data, decrypted.toByteArray());
+    }
+  }
+
+  /**
+   * Tests that text that is not valid {@code Base64} is rejected.
+   */
+  @Test(expected = RuntimeException.class)
+  public void testInvalidText()
+  {
+    new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1()).decrypt("$not-base64!");
+  }
+
+  /**
+   * Tests that text encrypted without a header, as was done before cipher
+   * suites were introduced, can still be decrypted.
+   */
+  @Test
+  public void testLegacyText()
+  {
+    final Key key = new KeyGenerator().generateKey(getRandomString()).getItem1();
+    final String text = getRandomString();
+    final String legacy = new Encrypter(key, CipherSuite.AES_ECB).encrypt(text);
+    final Encrypter encrypter = new Encrypter(key);
+
+    assertEquals(text, encrypter.decrypt(legacy));
+    assertNotEquals(legacy, encrypter.encrypt(text));
+    assertNotEquals(encrypter.encrypt(text), encrypter.encrypt(text));
+    assertEquals(text, encrypter.decrypt(encrypter.encrypt(text)));
+  }
+
+  /**
+   * Tests that tampering with authenticated data is detected.
+   */
+  @Test(expected = RuntimeException.class)
+  public void testTamperedText()
+  {
+    final Encrypter encrypter = new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1());
+    final char[] encrypted = encrypter.encrypt(getRandomString()).toCharArray();
+
+    encrypted[encrypted.length / 2] = encrypted[encrypted.length / 2] == 'A' ? 'B' : 'A';
+
+    encrypter.decrypt(new String(encrypted));
+  }
+
+  /**
+   * Tests that texts of any length, including texts too long for the
+   * buffers kept by each thread, can be decrypted again, with and without a
+   * header, and that texts of different lengths can be alternated.
+   */
+  @Test
+  public void testTextLengths()
+  {
+    final Key key = new KeyGenerator().generateKey(getRandomString()).getItem1();
+
+    for (final CipherSuite suite : Arrays.asList(CipherSuite.AES_GCM, CipherSuite.AES_ECB))
+    {
+      final Encrypter encrypter = new Encrypter(key, suite);
+
+      for (final int length : new int[] { 0, 1, 2, 3, 15, 16, 17, 100, 8191, 8192, 8193, 100000, 5 })
+      {
+        final char[] chars = new char[length];
+
+        Arrays.fill(chars, 'x');
+
+        final String text = new String(chars);
+
+        assertEquals(text, encrypter.decrypt(encrypter.encrypt(text)));
+      }
+    }
+  }
+
+  /**
+   * Tests that a stream that has been truncated at a chunk boundary is
+   * detected.
+   */
+  @Test(expected = RuntimeException.class)
+  public void testTruncatedStream() throws Exception
+  {
+    final Encrypter encrypter = new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1());
+    final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+
+    try (final OutputStream output = encrypter.encryptingStream(encrypted))
+    {
+      output.write(getRandomBytes(2 * StreamCipher.CHUNK_LENGTH + 1));
+    }
+
+    final byte[] truncated = Arrays.copyOf(encrypted.toByteArray(),
+                                           StreamCipher.HEADER_LENGTH
+                                           + 2 * (StreamCipher.CHUNK_LENGTH + StreamCipher.TAG_LENGTH));
+
+    encrypter.decrypt(Channels.newChannel(new ByteArrayInputStream(truncated)),
+                      Channels.newChannel(new ByteArrayOutputStream()));
+  }
+
+  /**
+   * Tests that {@code null} values are passed through unchanged.
+   */
+  @Test
+  public void testNull()
+  {
+    final Encrypter encrypter = new Encrypter(new KeyGenerator().generateKey(getRandomString()).getItem1());
+
+    assertNull(encrypter.encrypt(null));
+    assertNull(encrypter.decrypt(null));
+  }
+
+  /**
+   * Gets randomly generated bytes.
+   *
+   * @param length The number of bytes to generate.
+   * @return Randomly generated bytes.
+   */
+  private byte[] getRandomBytes(final int length)
+  {
+    final byte[] bytes = new byte[length];
+
+    new Random().nextBytes(bytes);
+
+    return bytes;
+  }
+
+  /**
+   * Gets a randomly generated string.
+   *
+   * @return A randomly generated string.
+   */
+  private String getRandomString()
+  {
+    return UUID.randomUUID().toString();
+  }
+}
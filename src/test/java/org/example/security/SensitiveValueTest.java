@@ -0,0 +1,40 @@
+package org.example.security;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SensitiveValue}.
+ */
+public class SensitiveValueTest
+{
+  /**
+   * Tests that a value can be obtained until it is wiped.
+   */
+  @Test
+  public void testGet()
+  {
+    final SensitiveValue value = new SensitiveValue("123-45-6789");
+
+    assertFalse(value.isWiped());
+    assertEquals("123-45-6789", value.get());
+    assertEquals("123-45-6789", value.get());
+    assertNull(new SensitiveValue(null).get());
+  }
+
+  /**
+   * Tests that a value cannot be obtained after it has been wiped.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testWipe()
+  {
+    final SensitiveValue value = new SensitiveValue("123-45-6789");
+
+    value.wipe();
+
+    assertTrue(value.isWiped());
+
+    value.get();
+  }
+}
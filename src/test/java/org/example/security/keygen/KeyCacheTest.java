@@ -0,0 +1,86 @@
+package org.example.security.keygen;
+
+import org.example.lang.Pair;
+import org.junit.Test;
+
+import java.security.Key;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link KeyCache}.
+ */
+public class KeyCacheTest
+{
+  private final KeyGenerator generator  = new KeyGenerator();
+  private final String       passphrase = UUID.randomUUID().toString();
+
+  /**
+   * Tests that a cached key is returned for the same passphrase and salt, and
+   * that hits and misses are counted.
+   */
+  @Test
+  public void testGet()
+  {
+    final KeyCache cache = new KeyCache(10, 1, TimeUnit.MINUTES);
+    final Pair<Key, String> pair = generator.generateKey(passphrase);
+
+    assertNull(cache.get(passphrase, pair.getItem2()));
+
+    cache.put(passphrase, pair.getItem2(), pair.getItem1());
+
+    assertArrayEquals(pair.getItem1().getEncoded(), cache.get(passphrase, pair.getItem2()).getEncoded());
+    assertNull(cache.get(UUID.randomUUID().toString(), pair.getItem2()));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  /**
+   * Tests that the least-recently-used key is evicted once the cache is
+   * full, and that keys obtained before the eviction remain usable.
+   */
+  @Test
+  public void testEviction()
+  {
+    final KeyCache cache = new KeyCache(2, 1, TimeUnit.MINUTES);
+    final Pair<Key, String> first = generator.generateKey(passphrase);
+    final Pair<Key, String> second = generator.generateKey(passphrase);
+    final Pair<Key, String> third = generator.generateKey(passphrase);
+
+    cache.put(passphrase, first.getItem2(), first.getItem1());
+    cache.put(passphrase, second.getItem2(), second.getItem1());
+
+    final Key key = cache.get(passphrase, first.getItem2());
+
+    cache.put(passphrase, third.getItem2(), third.getItem1());
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertNull(cache.get(passphrase, second.getItem2()));
+    assertNotNull(cache.get(passphrase, first.getItem2()));
+    assertNotNull(cache.get(passphrase, third.getItem2()));
+
+    cache.clear();
+
+    assertEquals(0, cache.size());
+    assertArrayEquals(first.getItem1().getEncoded(), key.getEncoded());
+  }
+
+  /**
+   * Tests that keys are not returned after they have expired.
+   */
+  @Test
+  public void testExpiry()
+  {
+    final KeyCache cache = new KeyCache(10, 1, TimeUnit.NANOSECONDS);
+    final Pair<Key, String> pair = generator.generateKey(passphrase);
+
+    cache.put(passphrase, pair.getItem2(), pair.getItem1());
+
+    assertNull(cache.get(passphrase, pair.getItem2()));
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+  }
+}
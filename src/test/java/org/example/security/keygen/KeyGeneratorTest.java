@@ -5,7 +5,19 @@ import org.example.security.Encrypter;
 import org.junit.Test;
 
 import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -14,6 +26,24 @@ import static org.junit.Assert.*;
  */
 public class KeyGeneratorTest
 {
+  /**
+   * Tests that {@link KeyGenerator#calibrate(long, TimeUnit)} never weakens
+   * the parameters and rounds the number of rounds.
+   */
+  @Test
+  public void testCalibrate()
+  {
+    final KeyGenerator generator = getGenerator();
+
+    assertEquals(KeyParameters.DEFAULT, generator.calibrate(1, TimeUnit.NANOSECONDS));
+
+    final KeyParameters calibrated = generator.calibrate(20, TimeUnit.MILLISECONDS);
+
+    assertTrue(calibrated.isAtLeast(KeyParameters.DEFAULT));
+    assertEquals(0, calibrated.getRounds() % 1000);
+    assertEquals(KeyParameters.DEFAULT.getKeyLength(), calibrated.getKeyLength());
+  }
+
   /**
    * Tests {@link KeyGenerator#generateKey(String)}.
    */
@@ -60,6 +90,109 @@ public class KeyGeneratorTest
     assertEquals(text, encrypter.decrypt(encrypter.encrypt(text)));
   }
 
+  /**
+   * Tests that keys derived with different parameters are different, and
+   * that keys can be derived again with parameters other than those of the
+   * generator.
+   */
+  @Test
+  public void testGenerateKeyWithParameters()
+  {
+    final KeyParameters parameters = new KeyParameters("PBKDF2WithHmacSHA1", 20000, 256);
+    final KeyGenerator generator = new KeyGenerator(parameters);
+    final String passphrase = getRandomString();
+    final Pair<Key, String> pair = generator.generateKey(passphrase);
+
+    assertSame(parameters, generator.getParameters());
+    assertEquals(32, pair.getItem1().getEncoded().length);
+    assertArrayEquals(pair.getItem1().getEncoded()
+        , getGenerator().generateKey(passphrase, pair.getItem2(), parameters).getItem1().getEncoded());
+    assertFalse(Arrays.equals(pair.getItem1().getEncoded()
+        , getGenerator().generateKey(passphrase, pair.getItem2()).getItem1().getEncoded()));
+  }
+
+  /**
+   * Tests {@link KeyGenerator#generateKeyAsync(String, String)} and
+   * {@link KeyGenerator#generateKeys(String, Collection)}.
+   */
+  @Test
+  public void testGenerateKeysInParallel()
+  {
+    final KeyGenerator generator = getGenerator();
+    final String passphrase = getRandomString();
+    final List<String> salts = new ArrayList<>();
+
+    for (int i = 0; i < 8; ++i)
+    {
+      salts.add(generator.generateKey(passphrase).getItem2());
+    }
+
+    // Repeat one of the salts to ensure duplicates are handled.
+    salts.add(salts.get(0));
+
+    final Map<String, Key> keys = generator.generateKeys(passphrase, salts);
+
+    assertEquals(8, keys.size());
+
+    for (final String salt : salts)
+    {
+      final Key key = generator.generateKey(passphrase, salt).getItem1();
+
+      assertArrayEquals(key.getEncoded(), keys.get(salt).getEncoded());
+      assertArrayEquals(key.getEncoded(), generator.generateKeyAsync(passphrase, salt).join().getItem1().getEncoded());
+    }
+  }
+
+  /**
+   * Tests that {@link KeyGenerator#generateSalt()} returns 8 random bytes in
+   * {@code Base64} representation, which are distinct across calls and
+   * threads, and that a key generated from such a salt can be generated
+   * again from it.
+   */
+  @Test
+  public void testGenerateSalt() throws Exception
+  {
+    final KeyGenerator generator = getGenerator();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final Set<String> salts = ConcurrentHashMap.newKeySet();
+
+    try
+    {
+      final List<Future<?>> results = new ArrayList<>();
+
+      for (int i = 0; i < 4; ++i)
+      {
+        results.add(executor.submit(() -> {
+          for (int j = 0; j < 250; ++j)
+          {
+            final String salt = generator.generateSalt();
+
+            assertEquals(8, Base64.getDecoder().decode(salt).length);
+            assertTrue(salt, salts.add(salt));
+          }
+        }));
+      }
+
+      for (final Future<?> result : results)
+      {
+        result.get();
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+
+    assertEquals(1000, salts.size());
+
+    final String passphrase = getRandomString();
+    final String salt = generator.generateSalt();
+    final Pair<Key, String> pair = generator.generateKey(passphrase, salt);
+
+    assertEquals(salt, pair.getItem2());
+    assertArrayEquals(pair.getItem1().getEncoded(), generator.generateKey(passphrase, salt).getItem1().getEncoded());
+  }
+
   /**
    * Gets a randomly generated string.
    *
@@ -0,0 +1,143 @@
+package org.example.security.keygen;
+
+import org.example.lang.Pair;
+import org.junit.Test;
+
+import java.security.Key;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link KeyManager}.
+ */
+public class KeyManagerTest
+{
+  private final KeyGenerator generator = new KeyGenerator();
+  private final Keyring      keyring   = new Keyring(new FixedPassphraseProvider());
+
+  /**
+   * Tests that keys for new records can be obtained again from their
+   * secrets, in both modes.
+   */
+  @Test
+  public void testGetKey()
+  {
+    for (final KeyManager.Mode mode : KeyManager.Mode.values())
+    {
+      final KeyManager manager = new KeyManager(generator, keyring, mode);
+      final Pair<Key, String> pair = manager.newKey();
+
+      assertTrue(manager.isCurrent(pair.getItem2()));
+      assertArrayEquals(pair.getItem1().getEncoded(), manager.getKey(pair.getItem2()).getEncoded());
+      assertNotEquals(pair.getItem2(), manager.newKey().getItem2());
+    }
+  }
+
+  /**
+   * Tests that secrets generated in one mode remain readable after switching
+   * to the other mode, and are reported as needing migration.
+   */
+  @Test
+  public void testSwitchMode()
+  {
+    final KeyManager derived = new KeyManager(generator, keyring, KeyManager.Mode.DERIVED);
+    final KeyManager envelope = new KeyManager(generator, keyring, KeyManager.Mode.ENVELOPE);
+    final Pair<Key, String> legacy = derived.newKey();
+    final Pair<Key, String> current = envelope.newKey();
+
+    assertArrayEquals(legacy.getItem1().getEncoded(), envelope.getKey(legacy.getItem2()).getEncoded());
+    assertArrayEquals(current.getItem1().getEncoded(), derived.getKey(current.getItem2()).getEncoded());
+    assertFalse(envelope.isCurrent(legacy.getItem2()));
+    assertFalse(derived.isCurrent(current.getItem2()));
+  }
+
+  /**
+   * Tests that secrets generated with an earlier version of the passphrase
+   * remain readable after the passphrase has been rotated, and are reported
+   * as needing migration.
+   */
+  @Test
+  public void testRotatePassphrase()
+  {
+    for (final KeyManager.Mode mode : KeyManager.Mode.values())
+    {
+      final Keyring keyring = new Keyring(new FixedPassphraseProvider());
+      final KeyManager manager = new KeyManager(generator, keyring, mode);
+      final Pair<Key, String> legacy = manager.newKey();
+      final int version = keyring.rotate(new FixedPassphraseProvider());
+      final Pair<Key, String> current = manager.newKey();
+
+      assertEquals(Keyring.INITIAL_VERSION, manager.getVersion(legacy.getItem2()));
+      assertEquals(version, manager.getVersion(current.getItem2()));
+      assertArrayEquals(legacy.getItem1().getEncoded(), manager.getKey(legacy.getItem2()).getEncoded());
+      assertArrayEquals(current.getItem1().getEncoded(), manager.getKey(current.getItem2()).getEncoded());
+      assertFalse(manager.isCurrent(legacy.getItem2()));
+      assertTrue(manager.isCurrent(current.getItem2()));
+    }
+  }
+
+  /**
+   * Tests that secrets recording weaker key-generation parameters than those
+   * for new records remain readable, and are reported as needing migration.
+   */
+  @Test
+  public void testStrengthenParameters()
+  {
+    final KeyGenerator stronger = new KeyGenerator(KeyParameters.DEFAULT.withRounds(20000));
+
+    for (final KeyManager.Mode mode : KeyManager.Mode.values())
+    {
+      final KeyManager before = new KeyManager(generator, keyring, mode);
+      final KeyManager after = new KeyManager(stronger, keyring, mode);
+      final Pair<Key, String> legacy = before.newKey();
+      final Pair<Key, String> current = after.newKey();
+
+      assertArrayEquals(legacy.getItem1().getEncoded(), after.getKey(legacy.getItem2()).getEncoded());
+      assertFalse(after.isCurrent(legacy.getItem2()));
+      assertTrue(after.isCurrent(current.getItem2()));
+      assertTrue(before.isCurrent(current.getItem2()));
+    }
+  }
+
+  /**
+   * Tests that wrapped passphrases can be unwrapped by a key manager with the
+   * same initial passphrase and salt, but not by one with a different initial
+   * passphrase or salt.
+   */
+  @Test
+  public void testWrapPassphrase()
+  {
+    final KeyManager manager = new KeyManager(generator, keyring, KeyManager.Mode.ENVELOPE);
+    final String wrapped = manager.wrapPassphrase("passphrase");
+
+    assertFalse(wrapped.contains("passphrase"));
+    assertNotEquals(wrapped, manager.wrapPassphrase("passphrase"));
+    assertEquals("passphrase", new KeyManager(generator, keyring, KeyManager.Mode.DERIVED).unwrapPassphrase(wrapped));
+
+    try
+    {
+      final Keyring other = new Keyring(new FixedPassphraseProvider(), keyring.getSalt(Keyring.INITIAL_VERSION));
+
+      new KeyManager(generator, other, KeyManager.Mode.ENVELOPE).unwrapPassphrase(wrapped);
+
+      fail("Passphrase unwrapped with a different initial passphrase.");
+    }
+    catch (final RuntimeException e)
+    {
+      // Expected.
+    }
+
+    try
+    {
+      final Keyring other = new Keyring(() -> keyring.getPassphrase(), Keyring.generateSalt());
+
+      new KeyManager(generator, other, KeyManager.Mode.ENVELOPE).unwrapPassphrase(wrapped);
+
+      fail("Passphrase unwrapped with a different salt.");
+    }
+    catch (final RuntimeException e)
+    {
+      // Expected.
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.security.keygen;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link KeyParameters}.
+ */
+public class KeyParametersTest
+{
+  /**
+   * Tests {@link KeyParameters#isAtLeast(KeyParameters)}.
+   */
+  @Test
+  public void testIsAtLeast()
+  {
+    final KeyParameters parameters = KeyParameters.DEFAULT.withRounds(20000);
+
+    assertTrue(parameters.isAtLeast(KeyParameters.DEFAULT));
+    assertTrue(parameters.isAtLeast(parameters));
+    assertFalse(KeyParameters.DEFAULT.isAtLeast(parameters));
+    assertFalse(new KeyParameters("PBKDF2WithHmacSHA256", 20000, 128).isAtLeast(KeyParameters.DEFAULT));
+  }
+
+  /**
+   * Tests that parameters can be parsed from their text representation.
+   */
+  @Test
+  public void testParse()
+  {
+    final KeyParameters parameters = new KeyParameters("PBKDF2WithHmacSHA256", 25000, 256);
+
+    assertEquals("PBKDF2WithHmacSHA256:25000:256", parameters.toString());
+    assertEquals(parameters, KeyParameters.parse(parameters.toString()));
+    assertEquals(parameters.hashCode(), KeyParameters.parse(parameters.toString()).hashCode());
+  }
+
+  /**
+   * Tests that invalid parameters are rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseInvalid()
+  {
+    KeyParameters.parse("PBKDF2WithHmacSHA1:10000:100");
+  }
+}
@@ -0,0 +1,113 @@
+package org.example.security.keygen;
+
+import org.junit.Test;
+
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Keyring}.
+ */
+public class KeyringTest
+{
+  /**
+   * Tests that versions added earlier can be added to a keyring again, in
+   * any order, and that adding the same version again with the same
+   * passphrase and salt has no effect.
+   */
+  @Test
+  public void testAdd()
+  {
+    final Keyring keyring = new Keyring(new FixedPassphraseProvider());
+
+    keyring.add(3, () -> "three", "c2FsdA==");
+    keyring.add(2, () -> "two", "cGVwcGVy");
+    keyring.add(3, () -> "three", "c2FsdA==");
+
+    assertEquals(3, keyring.getVersion());
+    assertEquals("three", keyring.getPassphrase());
+    assertEquals("two", keyring.getPassphrase(2));
+    assertEquals("c2FsdA==", keyring.getSalt(3));
+    assertEquals(4, keyring.rotate(new FixedPassphraseProvider()));
+  }
+
+  /**
+   * Tests that a version cannot be added again with a different passphrase.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddConflicting()
+  {
+    final Keyring keyring = new Keyring(new FixedPassphraseProvider());
+
+    keyring.add(2, () -> "two", "c2FsdA==");
+    keyring.add(2, () -> "other", "c2FsdA==");
+  }
+
+  /**
+   * Tests that a version cannot be added again with a different salt.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddConflictingSalt()
+  {
+    final Keyring keyring = new Keyring(new FixedPassphraseProvider());
+
+    keyring.add(2, () -> "two", "c2FsdA==");
+    keyring.add(2, () -> "two", "cGVwcGVy");
+  }
+
+  /**
+   * Tests that the initial version cannot be added again.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddInitial()
+  {
+    new Keyring(new FixedPassphraseProvider()).add(Keyring.INITIAL_VERSION, () -> "one", "c2FsdA==");
+  }
+
+  /**
+   * Tests that each version of the passphrase comes with a random salt of its
+   * own, unless a salt is specified.
+   */
+  @Test
+  public void testGetSalt()
+  {
+    final Keyring keyring = new Keyring(new FixedPassphraseProvider());
+    final String initial = keyring.getSalt(Keyring.INITIAL_VERSION);
+
+    assertEquals(16, Base64.getDecoder().decode(initial).length);
+    assertNotEquals(initial, new Keyring(new FixedPassphraseProvider()).getSalt(Keyring.INITIAL_VERSION));
+    assertNotEquals(initial, keyring.getSalt(keyring.rotate(new FixedPassphraseProvider())));
+    assertEquals("c2FsdA==", new Keyring(new FixedPassphraseProvider(), "c2FsdA==").getSalt(Keyring.INITIAL_VERSION));
+  }
+
+  /**
+   * Tests that rotating a keyring adds a new latest version, while earlier
+   * versions remain available.
+   */
+  @Test
+  public void testRotate()
+  {
+    final Keyring keyring = new Keyring(new FixedPassphraseProvider());
+    final String initial = keyring.getPassphrase();
+
+    assertEquals(Keyring.INITIAL_VERSION, keyring.getVersion());
+
+    final int version = keyring.rotate(new FixedPassphraseProvider());
+
+    assertEquals(Keyring.INITIAL_VERSION + 1, version);
+    assertEquals(version, keyring.getVersion());
+    assertNotEquals(initial, keyring.getPassphrase());
+    assertEquals(keyring.getPassphrase(), keyring.getPassphrase(version));
+    assertEquals(initial, keyring.getPassphrase(Keyring.INITIAL_VERSION));
+  }
+
+  /**
+   * Tests that versions that are not on the keyring are rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownVersion()
+  {
+    new Keyring(new FixedPassphraseProvider()).getPassphrase(Keyring.INITIAL_VERSION + 1);
+  }
+}
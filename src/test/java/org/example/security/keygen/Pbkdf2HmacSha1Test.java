@@ -0,0 +1,126 @@
+package org.example.security.keygen;
+
+import org.junit.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Pbkdf2HmacSha1}.
+ */
+public class Pbkdf2HmacSha1Test
+{
+  /**
+   * Tests that {@link Pbkdf2HmacSha1#derive(byte[], int, int)} derives the
+   * same keys as the platform, for passphrases shorter and longer than a
+   * block, passphrases with characters outside {@code ASCII}, and keys of
+   * one or more blocks.
+   */
+  @Test
+  public void testDeriveMatchesPlatform() throws Exception
+  {
+    final Random random = new Random(42);
+    final SecretKeyFactory factory = SecretKeyFactory.getInstance(Pbkdf2HmacSha1.ALGORITHM);
+    final String[] passphrases = { "p", "passphrase", "pässphräse-€", repeat("passphrase", 7), repeat("€", 30) };
+
+    for (final String passphrase : passphrases)
+    {
+      final Pbkdf2HmacSha1 engine = new Pbkdf2HmacSha1(passphrase);
+
+      for (final int saltLength : new int[] { 1, 8, 55, 56, 64, 100 })
+      {
+        final byte[] salt = new byte[saltLength];
+        random.nextBytes(salt);
+
+        for (final int keyLength : new int[] { 128, 192, 256 })
+        {
+          final int rounds = 1 + random.nextInt(2000);
+          final byte[] expected = factory.generateSecret(new PBEKeySpec(passphrase.toCharArray(), salt, rounds
+              , keyLength)).getEncoded();
+
+          assertArrayEquals(passphrase + "/" + saltLength + "/" + keyLength, expected
+              , engine.derive(salt, rounds, keyLength / 8));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests {@link Pbkdf2HmacSha1#derive(byte[], int, int)} with an empty
+   * salt.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testDeriveWithEmptySalt()
+  {
+    new Pbkdf2HmacSha1("passphrase").derive(new byte[0], 1, 16);
+  }
+
+  /**
+   * Tests {@link Pbkdf2HmacSha1#derive(byte[], int, int)} with the test
+   * vectors from RFC 6070.
+   */
+  @Test
+  public void testDeriveWithTestVectors()
+  {
+    assertDerives("0c60c80f961f0e71f3a9b524af6012062fe037a6", "password", "salt", 1, 20);
+    assertDerives("ea6c014dc72d6f8ccd1ed92ace1d41f0d8de8957", "password", "salt", 2, 20);
+    assertDerives("4b007901b765489abead49d926f721d065a429c1", "password", "salt", 4096, 20);
+    assertDerives("3d2eec4fe41c849b80c8d83662c0e44a8b291a964cf2f07038"
+        , "passwordPASSWORDpassword", "saltSALTsaltSALTsaltSALTsaltSALTsalt", 4096, 25);
+    assertDerives("56fa6aa75548099dcc37d7f03425e0c3", "pass\0word", "sa\0lt", 4096, 16);
+  }
+
+  /**
+   * Tests {@link Pbkdf2HmacSha1#isFor(String)}.
+   */
+  @Test
+  public void testIsFor()
+  {
+    final Pbkdf2HmacSha1 engine = new Pbkdf2HmacSha1("passphrase");
+
+    assertTrue(engine.isFor(new String("passphrase")));
+    assertFalse(engine.isFor("Passphrase"));
+    assertFalse(engine.isFor(null));
+  }
+
+  /**
+   * Asserts that a key is derived from a passphrase and a salt.
+   *
+   * @param expected   The expected key, in hexadecimal.
+   * @param passphrase The passphrase.
+   * @param salt       The salt.
+   * @param rounds     The number of rounds.
+   * @param length     The length of the key, in bytes.
+   */
+  private void assertDerives(final String expected, final String passphrase, final String salt, final int rounds
+      , final int length)
+  {
+    final byte[] key = new Pbkdf2HmacSha1(passphrase).derive(salt.getBytes(StandardCharsets.UTF_8), rounds, length);
+
+    assertEquals(expected, String.format("%0" + 2 * length + "x", new BigInteger(1, key)));
+  }
+
+  /**
+   * Repeats a {@link String}.
+   *
+   * @param text  The {@link String} to repeat.
+   * @param count The number of times to repeat it.
+   * @return The repeated {@link String}.
+   */
+  private String repeat(final String text, final int count)
+  {
+    final StringBuilder builder = new StringBuilder();
+
+    for (int i = 0; i < count; ++i)
+    {
+      builder.append(text);
+    }
+
+    return builder.toString();
+  }
+}
@@ -0,0 +1,42 @@
+package org.example.security.keygen;
+
+import org.junit.Test;
+
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link SaltGenerator}.
+ */
+public class SaltGeneratorTest
+{
+  private SaltGenerator generator = new SaltGenerator();
+
+  /**
+   * Tests that {@link SaltGenerator#nextSalts(int, int)} generates the
+   * requested number of distinct salts of the requested length, including
+   * across reseeding of the underlying generator.
+   */
+  @Test
+  public void testNextSalts()
+  {
+    final Set<String> unique = new HashSet<>();
+
+    for (int i = 0; i < 10; ++i)
+    {
+      final byte[][] salts = generator.nextSalts(1000, 16);
+
+      assertEquals(1000, salts.length);
+
+      for (final byte[] salt : salts)
+      {
+        assertEquals(16, salt.length);
+        assertTrue(unique.add(Base64.getEncoder().encodeToString(salt)));
+      }
+    }
+  }
+}